@@ -0,0 +1,19 @@
+-- Local replica of the notification-mysql service. The schema and application user are
+-- created here as well, since the primary may not log its own init; replaying them from
+-- the primary is skipped via --replica-skip-errors.
+SET sql_log_bin = 0;
+CREATE DATABASE IF NOT EXISTS notification_db;
+CREATE USER IF NOT EXISTS 'notification_user'@'%' IDENTIFIED BY 'password';
+GRANT SELECT ON notification_db.* TO 'notification_user'@'%';
+-- The service's replica lag probe runs SHOW SLAVE STATUS
+GRANT REPLICATION CLIENT ON *.* TO 'notification_user'@'%';
+SET sql_log_bin = 1;
+
+CHANGE REPLICATION SOURCE TO
+    SOURCE_HOST = 'mysql',
+    SOURCE_USER = 'root',
+    SOURCE_PASSWORD = 'rootpassword',
+    SOURCE_AUTO_POSITION = 1,
+    SOURCE_CONNECT_RETRY = 5,
+    GET_SOURCE_PUBLIC_KEY = 1;
+START REPLICA;
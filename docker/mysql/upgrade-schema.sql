@@ -0,0 +1,16 @@
+-- Schema changes that Hibernate's ddl-auto: update cannot make, since it never relaxes an
+-- existing column. The service applies these itself at startup (SchemaUpgrade); this file
+-- is for applying them by hand, e.g. ahead of a deploy. Safe to run repeatedly, and a no-op
+-- on a database where Hibernate has not created the tables yet.
+
+-- New rows keep their body in message_body and template sends have no literal body, so the
+-- legacy message column must accept NULL.
+SET @relax_message = IF(
+    (SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS
+     WHERE TABLE_SCHEMA = 'notification_db' AND TABLE_NAME = 'sms_requests'
+       AND COLUMN_NAME = 'message' AND IS_NULLABLE = 'NO') > 0,
+    'ALTER TABLE notification_db.sms_requests MODIFY message TEXT NULL',
+    'DO 0');
+PREPARE relax_message FROM @relax_message;
+EXECUTE relax_message;
+DEALLOCATE PREPARE relax_message;
@@ -1,10 +1,15 @@
 package com.notification.config;
 
+import com.notification.model.SmsRequest.NotificationChannel;
+import com.notification.service.ClientQuotaService;
+import com.notification.service.ClientQuotaService.QuotaType;
+import com.notification.service.dispatch.ChannelDispatcher;
+import com.notification.service.dispatch.StubChannelDispatcher;
+import com.notification.util.Bulkhead;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.http.HttpHost;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
-import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
@@ -14,11 +19,10 @@ import org.elasticsearch.client.RestHighLevelClient;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.HttpStatus;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.*;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import javax.servlet.FilterChain;
@@ -37,6 +41,10 @@ public class ApplicationConfig {
 
     // Kafka Topics
     public static final String SMS_SEND_TOPIC = "notification.send_sms";
+    public static final String SMS_SEND_HIGH_PRIORITY_TOPIC = "notification.send_sms.high";
+    public static final String SMS_SEND_LOW_PRIORITY_TOPIC = "notification.send_sms.low";
+    public static final String EMAIL_SEND_TOPIC = "notification.send_email";
+    public static final String PUSH_SEND_TOPIC = "notification.send_push";
     
     // Redis Keys
     public static final String BLACKLIST_KEY = "sms:blacklist";
@@ -49,6 +57,11 @@ public class ApplicationConfig {
     public static final String PHONE_NUMBER_BLACKLISTED = "PHONE_NUMBER_BLACKLISTED";
     public static final String SMS_SEND_FAILED = "SMS_SEND_FAILED";
     public static final String REQUEST_NOT_FOUND = "REQUEST_NOT_FOUND";
+    public static final String RATE_LIMIT_EXCEEDED = "RATE_LIMIT_EXCEEDED";
+    public static final String SERVICE_OVERLOADED = "SERVICE_OVERLOADED";
+    public static final String FREQUENCY_CAP_EXCEEDED = "FREQUENCY_CAP_EXCEEDED";
+    public static final String DUPLICATE_REQUEST_IN_FLIGHT = "DUPLICATE_REQUEST_IN_FLIGHT";
+    public static final String IDEMPOTENCY_KEY_REUSED = "IDEMPOTENCY_KEY_REUSED";
     
     // Success Messages
     public static final String SMS_SENT_SUCCESS = "Successfully Sent";
@@ -63,7 +76,21 @@ public class ApplicationConfig {
     public static final String AUTHORIZATION_HEADER = "Authorization";
     public static final String CONTENT_TYPE_HEADER = "Content-Type";
     public static final String APPLICATION_JSON = "application/json";
+    public static final String RETRY_AFTER_HEADER = "Retry-After";
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String SEARCH_BACKEND_HEADER = "X-Search-Backend";
+    public static final String SEARCH_NEXT_CURSOR_HEADER = "X-Search-Next-Cursor";
     
+    // Export
+    public static final String EXPORT_FETCH_SIZE = "1000";
+    public static final String NDJSON_CONTENT_TYPE = "application/x-ndjson";
+    public static final String CSV_CONTENT_TYPE = "text/csv";
+    public static final String GZIP_CONTENT_TYPE = "application/gzip";
+
+    // Bulk status lookup
+    public static final int STATUS_LOOKUP_MAX_IDS = 5000;
+    public static final int STATUS_LOOKUP_CHUNK_SIZE = 500;
+
     // Cache TTL (in seconds)
     public static final long BLACKLIST_CACHE_TTL = 86400; // 24 hours
 
@@ -123,35 +150,64 @@ public class ApplicationConfig {
     public ConcurrentKafkaListenerContainerFactory<String, String> kafkaListenerContainerFactory() {
         ConcurrentKafkaListenerContainerFactory<String, String> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
+        // Started by WarmupService once the instance is warm
+        factory.setAutoStartup(false);
         return factory;
     }
 
-    // RestTemplate Configuration
-    @Value("${sms.api.timeout}")
-    private int timeout;
+    // Request Bulkheads
+    @Value("${sms.bulkheads.send.threads}")
+    private int sendBulkheadThreads;
+
+    @Value("${sms.bulkheads.send.queue-capacity}")
+    private int sendBulkheadQueueCapacity;
+
+    @Value("${sms.bulkheads.send.timeout-ms}")
+    private long sendBulkheadTimeoutMs;
+
+    @Value("${sms.bulkheads.read.threads}")
+    private int readBulkheadThreads;
+
+    @Value("${sms.bulkheads.read.queue-capacity}")
+    private int readBulkheadQueueCapacity;
+
+    @Value("${sms.bulkheads.read.timeout-ms}")
+    private long readBulkheadTimeoutMs;
+
+    @Value("${sms.admission.retry-after-seconds}")
+    private long retryAfterSeconds;
 
     @Bean
-    public RestTemplate restTemplate() {
-        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
-        connectionManager.setMaxTotal(100);
-        connectionManager.setDefaultMaxPerRoute(20);
+    public Bulkhead sendBulkhead(MeterRegistry meterRegistry) {
+        return new Bulkhead("send", sendBulkheadThreads, sendBulkheadQueueCapacity, sendBulkheadTimeoutMs,
+                retryAfterSeconds, meterRegistry);
+    }
 
-        CloseableHttpClient httpClient = HttpClients.custom()
-                .setConnectionManager(connectionManager)
-                .build();
+    @Bean
+    public Bulkhead readBulkhead(MeterRegistry meterRegistry) {
+        return new Bulkhead("read", readBulkheadThreads, readBulkheadQueueCapacity, readBulkheadTimeoutMs,
+                retryAfterSeconds, meterRegistry);
+    }
 
-        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
-        requestFactory.setConnectTimeout(timeout);
-        requestFactory.setReadTimeout(timeout);
+    // Channel Dispatchers; email and push have no real provider yet, only local stubs
+    @Bean
+    public ChannelDispatcher emailDispatcher(ChannelProperties channelProperties) {
+        return new StubChannelDispatcher(NotificationChannel.EMAIL, channelProperties.getEmail().getStub());
+    }
 
-        return new RestTemplate(requestFactory);
+    @Bean
+    public ChannelDispatcher pushDispatcher(ChannelProperties channelProperties) {
+        return new StubChannelDispatcher(NotificationChannel.PUSH, channelProperties.getPush().getStub());
     }
 
     // Authentication Filter
     @Component
+    @RequiredArgsConstructor
     @Slf4j
     public static class AuthenticationFilter extends OncePerRequestFilter {
 
+        private final ClientQuotaService clientQuotaService;
+
         @Override
         protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, 
                                       FilterChain filterChain) throws ServletException, IOException {
@@ -166,7 +222,26 @@ public class ApplicationConfig {
             }
             
             log.debug("Authorization header present for request: {}", request.getRequestURI());
+
+            String clientId = clientQuotaService.resolveClientId(authHeader);
+            long retryAfter = clientQuotaService.tryAcquire(clientId, QuotaType.REQUESTS);
+            if (retryAfter == 0 && isSendRequest(request)) {
+                retryAfter = clientQuotaService.tryAcquire(clientId, QuotaType.MESSAGES);
+            }
+            if (retryAfter > 0) {
+                log.warn("Client {} exceeded its quota for request: {}", clientId, request.getRequestURI());
+                response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+                response.setHeader(RETRY_AFTER_HEADER, String.valueOf(retryAfter));
+                response.setContentType(APPLICATION_JSON);
+                response.getWriter().write("{\"error\":{\"code\":\"" + RATE_LIMIT_EXCEEDED + "\",\"message\":\"Client quota exceeded\"}}");
+                return;
+            }
+
             filterChain.doFilter(request, response);
         }
+
+        private boolean isSendRequest(HttpServletRequest request) {
+            return "POST".equals(request.getMethod()) && "/sms/send".equals(request.getServletPath());
+        }
     }
 } 
\ No newline at end of file
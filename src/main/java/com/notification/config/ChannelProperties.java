@@ -0,0 +1,60 @@
+package com.notification.config;
+
+import com.notification.model.SmsRequest.NotificationChannel;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Per-channel dispatch settings, bound from sms.channels.
+ */
+@Component
+@ConfigurationProperties(prefix = "sms.channels")
+@Data
+public class ChannelProperties {
+
+    private Channel sms = new Channel();
+    private Channel email = new Channel();
+    private Channel push = new Channel();
+
+    public Channel get(NotificationChannel channel) {
+        switch (channel) {
+            case EMAIL:
+                return email;
+            case PUSH:
+                return push;
+            default:
+                return sms;
+        }
+    }
+
+    @Data
+    public static class Channel {
+        private boolean enabled = true;
+
+        // Dispatch pool; provider calls of this channel never run anywhere else. With 0
+        // threads there is no pool and batches are sent on the consumer thread.
+        private int threads = 4;
+        private int queueCapacity = 100;
+
+        // Sends per second across the channel's batches; 0 means unlimited
+        private long ratePerSecond;
+
+        // Most requests handed to the provider in one call
+        private int batchSize = 1;
+
+        // Kafka consumers of the channel's topic and records per poll; SMS uses sms.lanes
+        private int consumers = 1;
+        private int maxPollRecords = 100;
+
+        // Stub provider, for channels without a real one
+        private Stub stub = new Stub();
+    }
+
+    @Data
+    public static class Stub {
+        private long latencyMs = 50;
+        private long latencyJitterMs = 20;
+        private double failureRate;
+    }
+}
@@ -0,0 +1,130 @@
+package com.notification.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Routes read-only transactions to a MySQL replica and everything else to the primary.
+ *
+ * Only active when spring.datasource.replica.jdbc-url is set; otherwise Spring Boot's
+ * single pool is used unchanged. The two pools are sized independently, so report and
+ * lookup reads can no longer starve the send and consume paths of primary connections.
+ */
+@Configuration
+@ConditionalOnExpression("!'${spring.datasource.replica.jdbc-url:}'.isEmpty()")
+public class DataSourceRoutingConfig {
+
+    public static final String PRIMARY = "primary";
+    public static final String REPLICA = "replica";
+
+    @Bean
+    @ConfigurationProperties(prefix = "spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = "spring.datasource.replica")
+    public HikariDataSource replicaDataSource() {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName(REPLICA);
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource routingDataSource(HikariDataSource primaryDataSource,
+                                                     HikariDataSource replicaDataSource,
+                                                     @Value("${sms.datasource.replica.max-lag-seconds}") long maxLagSeconds) {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primaryDataSource);
+        targets.put(REPLICA, replicaDataSource);
+
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(new JdbcTemplate(replicaDataSource), maxLagSeconds);
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(primaryDataSource);
+        return routing;
+    }
+
+    /**
+     * The lazy proxy defers fetching a physical connection until the first statement, by
+     * which point the transaction's read-only flag is known and can pick the pool.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    @Slf4j
+    public static class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+        private final JdbcTemplate replicaJdbcTemplate;
+        private final long maxLagSeconds;
+
+        private volatile boolean replicaUsable;
+        private boolean probeFailing;
+
+        public ReplicaRoutingDataSource(JdbcTemplate replicaJdbcTemplate, long maxLagSeconds) {
+            this.replicaJdbcTemplate = replicaJdbcTemplate;
+            this.maxLagSeconds = maxLagSeconds;
+        }
+
+        @Override
+        protected Object determineCurrentLookupKey() {
+            return replicaUsable && TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? REPLICA : PRIMARY;
+        }
+
+        /**
+         * Sends reads back to the primary while the replica is unreachable, not replicating,
+         * or further behind than max-lag-seconds. An instance with no replication configured
+         * reports no status and is treated as up to date. SHOW SLAVE STATUS needs the
+         * REPLICATION CLIENT privilege; a failing probe is logged at warn when it starts
+         * failing and at debug while it keeps failing.
+         */
+        @Scheduled(fixedDelayString = "${sms.datasource.replica.lag-probe-interval-ms}")
+        public void probeReplicaLag() {
+            boolean usable;
+            boolean failed = false;
+            try {
+                List<Map<String, Object>> status = replicaJdbcTemplate.queryForList("SHOW SLAVE STATUS");
+                if (status.isEmpty()) {
+                    usable = true;
+                } else {
+                    Object lag = status.get(0).get("Seconds_Behind_Master");
+                    usable = lag != null && ((Number) lag).longValue() <= maxLagSeconds;
+                }
+            } catch (RuntimeException e) {
+                if (probeFailing) {
+                    log.debug("Replica lag probe failed", e);
+                } else {
+                    log.warn("Replica lag probe failed, routing reads to the primary until it succeeds", e);
+                }
+                failed = true;
+                usable = false;
+            }
+            probeFailing = failed;
+            if (usable != replicaUsable) {
+                log.warn("Replica reads {}", usable ? "enabled" : "disabled, routing reads to the primary");
+            }
+            replicaUsable = usable;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.notification.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Schema changes that ddl-auto: update cannot make on its own.
+ *
+ * Hibernate's update only adds tables, columns and indexes; it never relaxes an existing
+ * column. sms_requests.message was created TEXT NOT NULL, but new rows keep their body in
+ * message_body (and template sends have no literal body at all), so message must accept
+ * NULL before the first send. Runs once the entity manager factory, and with it
+ * Hibernate's own update, is done and before the web server starts, so no request can see
+ * the old schema. Each change checks INFORMATION_SCHEMA first and is a no-op once applied.
+ * The same statements are in docker/mysql/upgrade-schema.sql for applying by hand.
+ */
+@Component
+@Slf4j
+public class SchemaUpgrade {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Taken only to be created after Hibernate has created or updated the tables
+    public SchemaUpgrade(DataSource dataSource, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @PostConstruct
+    public void upgrade() {
+        relaxNotNull("sms_requests", "message", "TEXT");
+    }
+
+    private void relaxNotNull(String table, String column, String type) {
+        List<String> nullable = jdbcTemplate.queryForList("SELECT IS_NULLABLE FROM INFORMATION_SCHEMA.COLUMNS "
+                + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ?", String.class, table, column);
+        if (nullable.isEmpty() || "YES".equals(nullable.get(0))) {
+            return;
+        }
+        log.warn("Column {}.{} is NOT NULL, altering it to accept NULL", table, column);
+        jdbcTemplate.execute("ALTER TABLE " + table + " MODIFY " + column + " " + type + " NULL");
+        log.info("Column {}.{} now accepts NULL", table, column);
+    }
+}
@@ -0,0 +1,66 @@
+package com.notification.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SMS vendors and the weights used to rank them, bound from sms.vendors.
+ */
+@Component
+@ConfigurationProperties(prefix = "sms.vendors")
+@Data
+public class SmsProviderProperties {
+
+    // Smoothing factor of the latency and error rate moving averages
+    private double ewmaAlpha = 0.2;
+
+    // Score penalty, in milliseconds, of a 100% error rate
+    private long errorPenaltyMs = 5000;
+
+    // Score penalty, in milliseconds, per unit of cost per part; HIGH sends ignore cost
+    private long costWeightMs = 100;
+
+    // Time after which an idle provider's averages have moved halfway back to their starting
+    // point, so a provider demoted by one bad spell is tried again
+    private long recoveryHalfLifeMs = 60000;
+
+    private List<Provider> providers = new ArrayList<>();
+
+    public enum Type {
+        HTTP,
+        SIMULATED
+    }
+
+    @Data
+    public static class Provider {
+        private String name;
+        private Type type = Type.HTTP;
+        private boolean enabled = true;
+
+        // Lower is preferred when scores are otherwise equal
+        private int priority;
+        private double costPerPart;
+
+        // Starting point of the latency average, before any traffic is observed
+        private long expectedLatencyMs = 200;
+
+        private int failureThreshold = 5;
+        private long openMillis = 30000;
+
+        // HTTP providers
+        private String url;
+        private String apiKey;
+        private int connectTimeoutMs = 2000;
+        private int readTimeoutMs = 5000;
+        private int maxConnections = 50;
+
+        // Simulated providers
+        private long latencyMs = 50;
+        private long latencyJitterMs = 20;
+        private double failureRate;
+    }
+}
@@ -3,27 +3,41 @@ package com.notification.controller;
 import com.notification.config.ApplicationConfig;
 import com.notification.dto.NotificationDtos.ApiResponse;
 import com.notification.dto.NotificationDtos.BlacklistRequestDto;
+import com.notification.dto.NotificationDtos.ReindexRequestDto;
+import com.notification.dto.NotificationDtos.TemplateRequestDto;
 import com.notification.model.SmsRequest;
+import com.notification.model.SmsTemplate;
 import com.notification.service.BlacklistService;
+import com.notification.service.DeliveryStatsService;
 import com.notification.service.ElasticsearchService;
+import com.notification.service.ReindexService;
+import com.notification.service.SmsExportService;
+import com.notification.service.SmsSearchService;
+import com.notification.service.TemplateService;
+import com.notification.util.Bulkhead;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.Pattern;
 import java.time.LocalDateTime;
+import java.util.Map;
 import java.util.Set;
+import java.util.zip.GZIPOutputStream;
 
 /**
- * Consolidated controller for Blacklist and Search operations
+ * Consolidated controller for Blacklist, Template, Search, Export and Admin operations
  */
 @RestController
 @RequiredArgsConstructor
@@ -33,6 +47,12 @@ public class NotificationController {
 
     private final BlacklistService blacklistService;
     private final ElasticsearchService elasticsearchService;
+    private final TemplateService templateService;
+    private final SmsExportService smsExportService;
+    private final SmsSearchService smsSearchService;
+    private final ReindexService reindexService;
+    private final DeliveryStatsService deliveryStatsService;
+    private final Bulkhead readBulkhead;
 
     // Blacklist endpoints
     @PostMapping("/blacklist")
@@ -77,6 +97,35 @@ public class NotificationController {
         }
     }
 
+    // Template endpoints
+    @PostMapping("/templates")
+    public ResponseEntity<ApiResponse<SmsTemplate>> registerTemplate(@Valid @RequestBody TemplateRequestDto requestDto) {
+        log.info("Received request to register template: {}", requestDto.getTemplateId());
+
+        try {
+            SmsTemplate template = templateService.registerTemplate(requestDto.getTemplateId(), requestDto.getBody());
+            return ResponseEntity.ok(ApiResponse.success(template));
+        } catch (Exception e) {
+            log.error("Error registering template: {}", requestDto.getTemplateId(), e);
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(ApplicationConfig.INVALID_REQUEST, e.getMessage()));
+        }
+    }
+
+    @GetMapping("/templates/{templateId}")
+    public ResponseEntity<ApiResponse<SmsTemplate>> getTemplate(@PathVariable String templateId) {
+        log.info("Received request to get template: {}", templateId);
+
+        try {
+            SmsTemplate template = templateService.getLatestTemplate(templateId);
+            return ResponseEntity.ok(ApiResponse.success(template));
+        } catch (RuntimeException e) {
+            log.error("Template not found: {}", templateId);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(ApiResponse.error(ApplicationConfig.REQUEST_NOT_FOUND, e.getMessage()));
+        }
+    }
+
     // Search endpoints
     @GetMapping("/search/sms/phone")
     public ResponseEntity<ApiResponse<Page<SmsRequest>>> searchSmsByPhoneNumberAndTimeRange(
@@ -84,17 +133,23 @@ public class NotificationController {
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String cursor) {
         
         log.info("Searching SMS for phone number: {} between {} and {}", phoneNumber, startTime, endTime);
         // log.info("Searching SMS for phone number: {} between {} and {}", phoneNumber);
         
         try {
             Pageable pageable = PageRequest.of(page, size);
-            Page<SmsRequest> result = elasticsearchService.searchSmsByPhoneNumberAndTimeRange(
-                    phoneNumber, startTime, endTime, pageable);
-            
-            return ResponseEntity.ok(ApiResponse.success(result));
+            SmsSearchService.SearchResult result = smsSearchService.searchByPhoneNumberAndTimeRange(
+                    phoneNumber, startTime, endTime, pageable, cursor);
+
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                    .header(ApplicationConfig.SEARCH_BACKEND_HEADER, result.getBackend());
+            if (result.getNextCursor() != null) {
+                response.header(ApplicationConfig.SEARCH_NEXT_CURSOR_HEADER, result.getNextCursor());
+            }
+            return response.body(ApiResponse.success(result.getPage()));
         } catch (Exception e) {
             log.error("Error searching SMS by phone number and time range: {}", phoneNumber, e);
             return ResponseEntity.badRequest()
@@ -121,4 +176,85 @@ public class NotificationController {
                     .body(ApiResponse.error(ApplicationConfig.INVALID_REQUEST, e.getMessage()));
         }
     }
-} 
\ No newline at end of file
+
+    // Export endpoints
+    @GetMapping("/export/sms")
+    public ResponseEntity<StreamingResponseBody> exportSms(
+            @RequestParam @Pattern(regexp = "^\\+[1-9]\\d{1,14}$", message = "Phone number must be in international format") String phoneNumber,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+
+        log.info("Received export request for phone number: {} between {} and {}", phoneNumber, startTime, endTime);
+
+        SmsExportService.ExportFormat exportFormat;
+        try {
+            exportFormat = SmsExportService.ExportFormat.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Unsupported export format: " + format);
+        }
+
+        StreamingResponseBody body = outputStream -> {
+            if (gzip) {
+                GZIPOutputStream gzipStream = new GZIPOutputStream(outputStream, 8192);
+                smsExportService.export(phoneNumber, startTime, endTime, exportFormat, gzipStream);
+                gzipStream.finish();
+            } else {
+                smsExportService.export(phoneNumber, startTime, endTime, exportFormat, outputStream);
+            }
+        };
+
+        // A gzip export is a .gz file download, not a transfer encoding the client undoes
+        String extension = exportFormat == SmsExportService.ExportFormat.CSV ? "csv" : "ndjson";
+        String contentType = exportFormat == SmsExportService.ExportFormat.CSV
+                ? ApplicationConfig.CSV_CONTENT_TYPE : ApplicationConfig.NDJSON_CONTENT_TYPE;
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_TYPE, gzip ? ApplicationConfig.GZIP_CONTENT_TYPE : contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"sms-export." + extension + (gzip ? ".gz" : "") + "\"")
+                .body(readBulkhead.stream(body));
+    }
+
+    // Stats endpoints, served from the last flushed snapshot only
+    @GetMapping("/stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getDeliveryStats() {
+        return ResponseEntity.ok(ApiResponse.success(deliveryStatsService.getSnapshot()));
+    }
+
+    // Admin endpoints
+    @PostMapping("/admin/reindex")
+    public ResponseEntity<ApiResponse<Map<String, String>>> startReindex(@Valid @RequestBody ReindexRequestDto requestDto) {
+        log.info("Received request to start Elasticsearch reindex: {}", requestDto);
+
+        try {
+            return ResponseEntity.ok(ApiResponse.success(reindexService.startReindex(requestDto)));
+        } catch (Exception e) {
+            log.error("Error starting Elasticsearch reindex", e);
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(ApplicationConfig.INVALID_REQUEST, e.getMessage()));
+        }
+    }
+
+    @PostMapping("/admin/reindex/resume")
+    public ResponseEntity<ApiResponse<Map<String, String>>> resumeReindex() {
+        log.info("Received request to resume Elasticsearch reindex");
+
+        try {
+            return ResponseEntity.ok(ApiResponse.success(reindexService.resumeReindex()));
+        } catch (Exception e) {
+            log.error("Error resuming Elasticsearch reindex", e);
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(ApplicationConfig.INVALID_REQUEST, e.getMessage()));
+        }
+    }
+
+    @GetMapping("/admin/reindex")
+    public ResponseEntity<ApiResponse<Map<String, String>>> getReindexStatus() {
+        Map<String, String> job = reindexService.getJob();
+        if (job.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(ApiResponse.error(ApplicationConfig.REQUEST_NOT_FOUND, "No reindex job found"));
+        }
+        return ResponseEntity.ok(ApiResponse.success(job));
+    }
+}
@@ -4,18 +4,33 @@ import com.notification.config.ApplicationConfig;
 import com.notification.dto.NotificationDtos.ApiResponse;
 import com.notification.dto.NotificationDtos.SmsRequestDto;
 import com.notification.dto.NotificationDtos.SmsResponseDto;
+import com.notification.dto.NotificationDtos.StatusLookupRequestDto;
+import com.notification.exception.DuplicateRequestInFlightException;
+import com.notification.exception.ServiceOverloadedException;
 import com.notification.model.SmsRequest;
+import com.notification.service.AdmissionControlService;
+import com.notification.service.ClientQuotaService;
+import com.notification.service.ElasticsearchService;
 import com.notification.service.SmsService;
+import com.notification.service.SmsStatusService;
+import com.notification.service.WarmupService;
+import com.notification.service.provider.SmsProviderRouter;
+import com.notification.util.Bulkhead;
+import com.notification.util.CircuitBreaker;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeMap;
 
 
 @RestController
@@ -25,24 +40,61 @@ import java.util.Map;
 public class SmsController {
 
     private final SmsService smsService;
+    private final SmsStatusService smsStatusService;
+    private final ClientQuotaService clientQuotaService;
+    private final AdmissionControlService admissionControlService;
+    private final ElasticsearchService elasticsearchService;
+    private final WarmupService warmupService;
+    private final SmsProviderRouter smsProviderRouter;
+    private final Bulkhead sendBulkhead;
+    private final Bulkhead readBulkhead;
     
-    // Health endpoint
+    // Health endpoint, served from cached probe results only
     @GetMapping("/health")
     public ResponseEntity<Map<String, Object>> getHealthStatus() {
         Map<String, Object> healthStatus = new HashMap<>();
         healthStatus.put("status", "UP");
         healthStatus.put("message", "Service is running");
         healthStatus.put("timestamp", System.currentTimeMillis());
+        healthStatus.put("elasticsearch", elasticsearchService.isHealthy() ? "UP" : "DOWN");
+        healthStatus.put("load", admissionControlService.getSignals());
+        healthStatus.put("circuitBreakers", getCircuitBreakerStates());
+        if (!warmupService.isComplete()) {
+            healthStatus.put("status", "WARMING_UP");
+            healthStatus.put("message", "Service is warming up");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(healthStatus);
+        }
         return ResponseEntity.ok(healthStatus);
     }
 
+    private Map<String, String> getCircuitBreakerStates() {
+        Map<String, String> states = new TreeMap<>();
+        CircuitBreaker searchBreaker = elasticsearchService.getSearchCircuitBreaker();
+        states.put(searchBreaker.getName(), searchBreaker.getState().name());
+        for (CircuitBreaker breaker : smsProviderRouter.getCircuitBreakers()) {
+            states.put(breaker.getName(), breaker.getState().name());
+        }
+        return states;
+    }
+
     @PostMapping("/sms/send")
-    public ResponseEntity<ApiResponse<SmsResponseDto>> sendSms(@Valid @RequestBody SmsRequestDto requestDto) {
+    public DeferredResult<ResponseEntity<ApiResponse<SmsResponseDto>>> sendSms(
+            @Valid @RequestBody SmsRequestDto requestDto,
+            @RequestHeader(value = ApplicationConfig.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @RequestHeader(ApplicationConfig.AUTHORIZATION_HEADER) String authorization) {
         log.info("Received SMS send request for phone number: {}", requestDto.getPhoneNumber());
-        
+        String clientId = clientQuotaService.resolveClientId(authorization);
+        return sendBulkhead.submit(() -> doSendSms(requestDto, idempotencyKey, clientId));
+    }
+
+    private ResponseEntity<ApiResponse<SmsResponseDto>> doSendSms(SmsRequestDto requestDto, String idempotencyKey,
+                                                                  String clientId) {
         try {
-            SmsResponseDto response = smsService.sendSms(requestDto);
+            SmsResponseDto response = smsService.sendSms(requestDto, idempotencyKey, clientId);
             return ResponseEntity.ok(ApiResponse.success(response));
+        } catch (ServiceOverloadedException | DuplicateRequestInFlightException e) {
+            // Answered with 503 or 409 and Retry-After by GlobalExceptionHandler
+            throw e;
         } catch (Exception e) {
             log.error("Error sending SMS for phone number: {}", requestDto.getPhoneNumber(), e);
             return ResponseEntity.badRequest()
@@ -51,9 +103,12 @@ public class SmsController {
     }
 
     @GetMapping("/sms/{requestId}")
-    public ResponseEntity<ApiResponse<SmsRequest>> getSmsRequest(@PathVariable String requestId) {
+    public DeferredResult<ResponseEntity<ApiResponse<SmsRequest>>> getSmsRequest(@PathVariable String requestId) {
         log.info("Received request to get SMS details for request ID: {}", requestId);
-        
+        return readBulkhead.submit(() -> doGetSmsRequest(requestId));
+    }
+
+    private ResponseEntity<ApiResponse<SmsRequest>> doGetSmsRequest(String requestId) {
         try {
             SmsRequest smsRequest = smsService.getSmsRequest(requestId);
             return ResponseEntity.ok(ApiResponse.success(smsRequest));
@@ -68,10 +123,23 @@ public class SmsController {
         }
     }
 
+    @PostMapping("/sms/status")
+    public ResponseEntity<StreamingResponseBody> getSmsStatuses(@Valid @RequestBody StatusLookupRequestDto requestDto) {
+        log.info("Received bulk status lookup for {} request IDs", requestDto.getRequestIds().size());
+
+        StreamingResponseBody body = outputStream -> smsStatusService.writeStatuses(requestDto.getRequestIds(), outputStream);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(readBulkhead.stream(body));
+    }
+
     @GetMapping("/sms/id/{id}")
-    public ResponseEntity<ApiResponse<SmsRequest>> getSmsRequestById(@PathVariable Long id) {
+    public DeferredResult<ResponseEntity<ApiResponse<SmsRequest>>> getSmsRequestById(@PathVariable Long id) {
         log.info("Received request to get SMS details for database ID: {}", id);
-        
+        return readBulkhead.submit(() -> doGetSmsRequestById(id));
+    }
+
+    private ResponseEntity<ApiResponse<SmsRequest>> doGetSmsRequestById(Long id) {
         try {
             SmsRequest smsRequest = smsService.getSmsRequestById(id);
             return ResponseEntity.ok(ApiResponse.success(smsRequest));
@@ -1,14 +1,24 @@
 package com.notification.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.notification.config.ApplicationConfig;
+import com.notification.model.SmsRequest.NotificationChannel;
+import com.notification.model.SmsRequest.SmsEncoding;
+import com.notification.model.SmsRequest.SmsPriority;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import javax.validation.constraints.AssertTrue;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.Pattern;
+import javax.validation.constraints.Size;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Consolidated DTOs for the Notification Service
@@ -20,12 +30,46 @@ public class NotificationDtos {
     @NoArgsConstructor
     @AllArgsConstructor
     public static class SmsRequestDto {
+        // Recipient on the chosen channel: phone number, email address or device token
         @NotBlank(message = "phone_number is mandatory")
-        @Pattern(regexp = "^\\+[1-9]\\d{1,14}$", message = "Phone number must be in international format")
         private String phoneNumber;
 
-        @NotBlank(message = "message is mandatory")
+        // Optional, defaults to SMS
+        private NotificationChannel channel;
+
+        // Either message or templateId (with templateParams) is required
         private String message;
+
+        private String templateId;
+
+        private Map<String, String> templateParams;
+
+        // Optional, defaults to NORMAL. Use HIGH for OTP/transactional and LOW for bulk sends.
+        private SmsPriority priority;
+
+        @JsonIgnore
+        @AssertTrue(message = "message or template_id is mandatory")
+        public boolean isContentPresent() {
+            boolean hasMessage = message != null && !message.trim().isEmpty();
+            boolean hasTemplate = templateId != null && !templateId.trim().isEmpty();
+            return hasMessage != hasTemplate;
+        }
+
+        @JsonIgnore
+        @AssertTrue(message = "phone_number must be an international phone number for SMS, an email address for EMAIL or a device token for PUSH")
+        public boolean isRecipientValid() {
+            if (phoneNumber == null) {
+                return true;
+            }
+            switch (NotificationChannel.orDefault(channel)) {
+                case EMAIL:
+                    return phoneNumber.length() <= 254 && phoneNumber.matches("^[^@\\s]+@[^@\\s]+\\.[^@\\s]+$");
+                case PUSH:
+                    return phoneNumber.matches("^[A-Za-z0-9_:.-]{16,255}$");
+                default:
+                    return phoneNumber.matches("^\\+[1-9]\\d{1,14}$");
+            }
+        }
     }
 
     @Data
@@ -36,6 +80,8 @@ public class NotificationDtos {
         private String requestId;
         private Long databaseId;
         private String comments;
+        private SmsEncoding encoding;
+        private Integer segmentCount;
     }
 
     @Data
@@ -47,12 +93,59 @@ public class NotificationDtos {
         private List<@Pattern(regexp = "^\\+[1-9]\\d{1,14}$", message = "Phone number must be in international format") String> phoneNumbers;
     }
 
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class StatusLookupRequestDto {
+        @NotEmpty(message = "request_ids list cannot be empty")
+        @Size(max = ApplicationConfig.STATUS_LOOKUP_MAX_IDS, message = "At most " + ApplicationConfig.STATUS_LOOKUP_MAX_IDS + " request_ids per lookup")
+        private List<@NotBlank(message = "request_id cannot be blank") String> requestIds;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class TemplateRequestDto {
+        @NotBlank(message = "template_id is mandatory")
+        @Pattern(regexp = "^[A-Za-z0-9_.-]{1,64}$", message = "template_id may only contain letters, digits, '_', '.' and '-'")
+        private String templateId;
+
+        @NotBlank(message = "body is mandatory")
+        private String body;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ReindexRequestDto {
+        // Rows per id-range chunk; each chunk is one MySQL read and one bulk request
+        @Min(value = 100, message = "chunk_size must be at least 100")
+        @Max(value = 10000, message = "chunk_size must be at most 10000")
+        private Integer chunkSize;
+
+        @Min(value = 1, message = "parallelism must be at least 1")
+        @Max(value = 16, message = "parallelism must be at most 16")
+        private Integer parallelism;
+
+        // Upper bound on documents indexed per second across all workers
+        @Min(value = 1, message = "max_docs_per_second must be positive")
+        private Integer maxDocsPerSecond;
+
+        // Optional mapping for the new index, as JSON
+        private String mapping;
+    }
+
     @Data
     @Builder
     @NoArgsConstructor
     @AllArgsConstructor
     public static class SmsApiResponse {
         private boolean success;
+        // Name of the provider that answered, null when none could be reached
+        private String provider;
         private String messageId;
         private String errorCode;
         private String errorMessage;
@@ -0,0 +1,18 @@
+package com.notification.exception;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a send repeats the idempotency key or dedupe hash of a request that is
+ * still being processed, so its original response is not known yet.
+ */
+@Getter
+public class DuplicateRequestInFlightException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public DuplicateRequestInFlightException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -40,6 +40,29 @@ public class GlobalExceptionHandler {
                 .body(ApiResponse.error(ApplicationConfig.INVALID_REQUEST, errorMessage));
     }
 
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<ApiResponse<Void>> handleServiceOverloadedException(ServiceOverloadedException ex) {
+        log.warn("Request shed: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(ApplicationConfig.RETRY_AFTER_HEADER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(ApiResponse.error(ApplicationConfig.SERVICE_OVERLOADED, ex.getMessage()));
+    }
+
+    @ExceptionHandler(DuplicateRequestInFlightException.class)
+    public ResponseEntity<ApiResponse<Void>> handleDuplicateRequestInFlightException(DuplicateRequestInFlightException ex) {
+        log.warn("Duplicate request in flight: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .header(ApplicationConfig.RETRY_AFTER_HEADER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(ApiResponse.error(ApplicationConfig.DUPLICATE_REQUEST_IN_FLIGHT, ex.getMessage()));
+    }
+
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ResponseEntity<ApiResponse<Void>> handleIdempotencyKeyReusedException(IdempotencyKeyReusedException ex) {
+        log.warn("Idempotency key reused: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                .body(ApiResponse.error(ApplicationConfig.IDEMPOTENCY_KEY_REUSED, ex.getMessage()));
+    }
+
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<ApiResponse<Void>> handleRuntimeException(RuntimeException ex) {
         log.error("Runtime exception: {}", ex.getMessage(), ex);
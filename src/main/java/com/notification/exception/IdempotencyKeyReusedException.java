@@ -0,0 +1,12 @@
+package com.notification.exception;
+
+/**
+ * Thrown when a send reuses an Idempotency-Key with a different request body than the
+ * request the key was first used for.
+ */
+public class IdempotencyKeyReusedException extends RuntimeException {
+
+    public IdempotencyKeyReusedException(String message) {
+        super(message);
+    }
+}
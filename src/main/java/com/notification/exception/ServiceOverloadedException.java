@@ -0,0 +1,17 @@
+package com.notification.exception;
+
+import lombok.Getter;
+
+/**
+ * Thrown when admission control sheds a request because the service is overloaded.
+ */
+@Getter
+public class ServiceOverloadedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public ServiceOverloadedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -1,19 +1,29 @@
 package com.notification.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.notification.util.MessageCodec;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotBlank;
-import javax.validation.constraints.Pattern;
 import java.time.LocalDateTime;
+import java.util.Map;
 
 @Entity
-@Table(name = "sms_requests")
+@Table(name = "sms_requests", indexes = {
+        @Index(name = "idx_sms_requests_phone_created_id", columnList = "phone_number, created_at, id"),
+        @Index(name = "idx_sms_requests_correlation_id", columnList = "correlation_id"),
+        @Index(name = "idx_sms_requests_updated_id", columnList = "updated_at, id"),
+        @Index(name = "idx_sms_requests_status_claimed", columnList = "status, claimed_at")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -24,15 +34,43 @@ public class SmsRequest {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // Recipient address on the request's channel: an E.164 number for SMS, an email
+    // address for EMAIL, a device token for PUSH. Validated per channel at intake.
     @NotBlank(message = "Phone number is mandatory")
-    @Pattern(regexp = "^\\+[1-9]\\d{1,14}$", message = "Phone number must be in international format")
     @Column(name = "phone_number", nullable = false)
     private String phoneNumber;
 
-    @NotBlank(message = "Message is mandatory")
-    @Column(name = "message", nullable = false, columnDefinition = "TEXT")
+    @Enumerated(EnumType.STRING)
+    @Column(name = "channel", length = 8)
+    private NotificationChannel channel;
+
+    // Only set on rows stored before bodies were compressed; new rows use message_body
+    @Column(name = "message", columnDefinition = "TEXT")
     private String message;
 
+    // MessageCodec-encoded body. Null for template sends, which are rendered from
+    // template_id/version/params at dispatch
+    @JsonIgnore
+    @Column(name = "message_body", columnDefinition = "BLOB")
+    private byte[] messageBody;
+
+    // Decoded body, filled on first use
+    @JsonIgnore
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private String decodedMessage;
+
+    @Column(name = "template_id", length = 64)
+    private String templateId;
+
+    @Column(name = "template_version")
+    private Integer templateVersion;
+
+    @Convert(converter = TemplateParamsConverter.class)
+    @Column(name = "template_params", columnDefinition = "TEXT")
+    private Map<String, String> templateParams;
+
     @Enumerated(EnumType.STRING)
     @Column(name = "status", nullable = false)
     private SmsStatus status = SmsStatus.PENDING;
@@ -46,9 +84,30 @@ public class SmsRequest {
     @Column(name = "message_id")
     private String messageId;
 
+    // When the request was last claimed for delivery; a PROCESSING row whose claim is older
+    // than the lease is handed back to the queue
+    @Column(name = "claimed_at")
+    private LocalDateTime claimedAt;
+
     @Column(name = "correlation_id")
     private String correlationId;
 
+    @Enumerated(EnumType.STRING)
+    @Column(name = "priority")
+    private SmsPriority priority;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "encoding", length = 8)
+    private SmsEncoding encoding;
+
+    @Column(name = "segment_count")
+    private Integer segmentCount;
+
+    // Optimistic lock; every status transition bumps it, so it also orders status updates
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private Long version;
+
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -57,11 +116,108 @@ public class SmsRequest {
     @Column(name = "updated_at", nullable = false)
     private LocalDateTime updatedAt;
 
+    /**
+     * Returns the message body, decoding the stored body on first use, so requests that
+     * are only claimed, capped or counted never pay for decompression.
+     */
+    public String getMessage() {
+        if (message != null) {
+            return message;
+        }
+        if (decodedMessage == null && messageBody != null) {
+            decodedMessage = MessageCodec.decode(messageBody);
+        }
+        return decodedMessage;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+        this.messageBody = null;
+        this.decodedMessage = null;
+    }
+
+    @PrePersist
+    void encodeMessage() {
+        if (message != null) {
+            messageBody = MessageCodec.encode(message);
+            decodedMessage = message;
+            message = null;
+        }
+    }
+
+    /**
+     * Moves the request to the given status, rejecting transitions the state machine
+     * does not allow.
+     */
+    public void transitionTo(SmsStatus next) {
+        if (status == null || !status.canTransitionTo(next)) {
+            throw new IllegalStateException("Illegal status transition " + status + " -> " + next
+                    + " for correlation ID: " + correlationId);
+        }
+        status = next;
+    }
+
+    /**
+     * Delivery state machine. A request is claimed (PENDING to PROCESSING) and then
+     * settles in exactly one terminal status; terminal statuses never change again. A claim
+     * that was never settled is released back to PENDING once its lease expires.
+     * FREQUENCY_CAPPED requests are either created capped or capped at dispatch.
+     */
     public enum SmsStatus {
         PENDING,
         PROCESSING,
         SENT,
         FAILED,
-        BLACKLISTED
+        BLACKLISTED,
+        FREQUENCY_CAPPED;
+
+        public boolean canTransitionTo(SmsStatus next) {
+            switch (this) {
+                case PENDING:
+                    return next == PROCESSING || next == FAILED;
+                case PROCESSING:
+                    return next == SENT || next == FAILED || next == BLACKLISTED || next == FREQUENCY_CAPPED;
+                default:
+                    return false;
+            }
+        }
+
+        public boolean isTerminal() {
+            return this != PENDING && this != PROCESSING;
+        }
+    }
+
+    public enum SmsEncoding {
+        GSM_7,
+        UCS_2
+    }
+
+    /**
+     * Channel a request is delivered on. Rows created before channels existed have no
+     * channel and are SMS.
+     */
+    public enum NotificationChannel {
+        SMS,
+        EMAIL,
+        PUSH;
+
+        public static NotificationChannel orDefault(NotificationChannel channel) {
+            return channel != null ? channel : SMS;
+        }
+    }
+
+    /**
+     * Delivery lane of a request. HIGH is reserved for OTP and other transactional
+     * traffic, LOW for bulk promotional sends. Rows created before lanes existed
+     * have no priority and are treated as NORMAL.
+     */
+    public enum SmsPriority {
+        HIGH,
+        NORMAL,
+        LOW;
+
+        public static SmsPriority orDefault(SmsPriority priority) {
+            return priority != null ? priority : NORMAL;
+        }
     }
 } 
\ No newline at end of file
@@ -0,0 +1,42 @@
+package com.notification.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * A registered message template. Versions are immutable: re-registering a template with a
+ * new body creates the next version, so requests already in flight keep rendering with
+ * the version they were accepted with.
+ */
+@Entity
+@Table(name = "sms_templates",
+        uniqueConstraints = @UniqueConstraint(name = "uk_sms_templates_template_version", columnNames = {"template_id", "version"}))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SmsTemplate {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "template_id", nullable = false, length = 64)
+    private String templateId;
+
+    @Column(name = "version", nullable = false)
+    private Integer version;
+
+    @Column(name = "body", nullable = false, columnDefinition = "TEXT")
+    private String body;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
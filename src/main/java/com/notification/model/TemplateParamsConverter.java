@@ -0,0 +1,44 @@
+package com.notification.model;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Stores template parameters as a JSON object column.
+ */
+@Converter
+public class TemplateParamsConverter implements AttributeConverter<Map<String, String>, String> {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final TypeReference<Map<String, String>> PARAMS_TYPE = new TypeReference<Map<String, String>>() {
+    };
+
+    @Override
+    public String convertToDatabaseColumn(Map<String, String> params) {
+        if (params == null) {
+            return null;
+        }
+        try {
+            return OBJECT_MAPPER.writeValueAsString(params);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Failed to serialize template params", e);
+        }
+    }
+
+    @Override
+    public Map<String, String> convertToEntityAttribute(String json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return OBJECT_MAPPER.readValue(json, PARAMS_TYPE);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Failed to deserialize template params", e);
+        }
+    }
+}
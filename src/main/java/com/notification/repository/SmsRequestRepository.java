@@ -1,18 +1,33 @@
 package com.notification.repository;
 
+import com.notification.config.ApplicationConfig;
 import com.notification.model.SmsRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
 public interface SmsRequestRepository extends JpaRepository<SmsRequest, Long> {
 
+    // Read-write so that, outside a read-only transaction, the consumer reads the row it is
+    // about to update from the primary rather than a lagging replica
+    @Transactional
     Optional<SmsRequest> findByCorrelationId(String correlationId);
 
     @Query("SELECT s FROM SmsRequest s WHERE s.phoneNumber = :phoneNumber AND s.createdAt BETWEEN :startTime AND :endTime ORDER BY s.createdAt DESC")
@@ -22,8 +37,107 @@ public interface SmsRequestRepository extends JpaRepository<SmsRequest, Long> {
             @Param("endTime") LocalDateTime endTime
     );
 
-    @Query("SELECT s FROM SmsRequest s WHERE s.message LIKE %:text% ORDER BY s.createdAt DESC")
-    List<SmsRequest> findByMessageContaining(@Param("text") String text);
+    // Keyset pagination for the MySQL search fallback, served by idx_sms_requests_phone_created_id.
+    // Pass PageRequest.of(0, size) so the page size becomes a LIMIT without an OFFSET.
+    @Query("SELECT s FROM SmsRequest s WHERE s.phoneNumber = :phoneNumber AND s.createdAt BETWEEN :startTime AND :endTime ORDER BY s.createdAt DESC, s.id DESC")
+    List<SmsRequest> findFirstKeysetPage(
+            @Param("phoneNumber") String phoneNumber,
+            @Param("startTime") LocalDateTime startTime,
+            @Param("endTime") LocalDateTime endTime,
+            Pageable pageable
+    );
+
+    @Query("SELECT s FROM SmsRequest s WHERE s.phoneNumber = :phoneNumber AND s.createdAt BETWEEN :startTime AND :endTime "
+            + "AND (s.createdAt < :cursorCreatedAt OR (s.createdAt = :cursorCreatedAt AND s.id < :cursorId)) "
+            + "ORDER BY s.createdAt DESC, s.id DESC")
+    List<SmsRequest> findKeysetPageAfter(
+            @Param("phoneNumber") String phoneNumber,
+            @Param("startTime") LocalDateTime startTime,
+            @Param("endTime") LocalDateTime endTime,
+            @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+            @Param("cursorId") Long cursorId,
+            Pageable pageable
+    );
+
+    // Reads only (created_at, id) from the covering index, used to position a cursor for page N
+    @Query("SELECT s.createdAt, s.id FROM SmsRequest s WHERE s.phoneNumber = :phoneNumber AND s.createdAt BETWEEN :startTime AND :endTime "
+            + "ORDER BY s.createdAt DESC, s.id DESC")
+    List<Object[]> findKeysetKeys(
+            @Param("phoneNumber") String phoneNumber,
+            @Param("startTime") LocalDateTime startTime,
+            @Param("endTime") LocalDateTime endTime,
+            Pageable pageable
+    );
+
+    long countByPhoneNumberAndCreatedAtBetween(String phoneNumber, LocalDateTime startTime, LocalDateTime endTime);
+
+    /**
+     * Streams matching rows through a server-side cursor (requires useCursorFetch=true on the
+     * MySQL URL) as read-only entities. Must be consumed inside a transaction and closed.
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = ApplicationConfig.EXPORT_FETCH_SIZE),
+            @QueryHint(name = HINT_READONLY, value = "true"),
+            @QueryHint(name = HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT s FROM SmsRequest s WHERE s.phoneNumber = :phoneNumber AND s.createdAt BETWEEN :startTime AND :endTime ORDER BY s.createdAt DESC")
+    Stream<SmsRequest> streamByPhoneNumberAndCreatedAtBetween(
+            @Param("phoneNumber") String phoneNumber,
+            @Param("startTime") LocalDateTime startTime,
+            @Param("endTime") LocalDateTime endTime
+    );
+
+    /**
+     * Atomically claims a request for delivery and stamps the claim time its lease runs
+     * from. Returns 0 when the request is missing or was already claimed, i.e. the delivery
+     * is a duplicate or arrived late.
+     */
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("UPDATE SmsRequest s SET s.status = :claimed, s.version = s.version + 1, s.updatedAt = :now, s.claimedAt = :now "
+            + "WHERE s.correlationId = :correlationId AND s.status = :expected")
+    int claimForProcessing(@Param("correlationId") String correlationId,
+                           @Param("expected") SmsRequest.SmsStatus expected,
+                           @Param("claimed") SmsRequest.SmsStatus claimed,
+                           @Param("now") LocalDateTime now);
+
+    // Claims older than the lease whose consumer never settled them, oldest first;
+    // served by idx_sms_requests_status_claimed. Rows are (correlationId, channel, priority).
+    @Query("SELECT s.correlationId, s.channel, s.priority FROM SmsRequest s "
+            + "WHERE s.status = :status AND s.claimedAt < :before ORDER BY s.claimedAt ASC")
+    List<Object[]> findStaleClaims(@Param("status") SmsRequest.SmsStatus status,
+                                   @Param("before") LocalDateTime before,
+                                   Pageable pageable);
+
+    /**
+     * Hands an expired claim back to PENDING so the request can be claimed again. Returns 0
+     * when the claim was settled or renewed meanwhile, or another instance released it first.
+     */
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("UPDATE SmsRequest s SET s.status = :pending, s.version = s.version + 1, s.updatedAt = :now, s.claimedAt = NULL "
+            + "WHERE s.correlationId = :correlationId AND s.status = :claimed AND s.claimedAt < :before")
+    int releaseStaleClaim(@Param("correlationId") String correlationId,
+                          @Param("claimed") SmsRequest.SmsStatus claimed,
+                          @Param("pending") SmsRequest.SmsStatus pending,
+                          @Param("before") LocalDateTime before,
+                          @Param("now") LocalDateTime now);
+
+    // Closed projection: selects only the status columns, never the message TEXT
+    List<SmsStatusView> findByCorrelationIdIn(Collection<String> correlationIds);
+
+    // Primary key range reads for the Elasticsearch backfill job
+    List<SmsRequest> findByIdBetweenOrderByIdAsc(Long startId, Long endId);
+
+    // Rows changed since a backfill started, for its catch-up pass; served by idx_sms_requests_updated_id
+    List<SmsRequest> findByUpdatedAtGreaterThanEqualAndIdGreaterThanOrderByIdAsc(LocalDateTime since, Long afterId,
+                                                                                 Pageable pageable);
+
+    @Query("SELECT MIN(s.id) FROM SmsRequest s")
+    Long findMinId();
+
+    @Query("SELECT MAX(s.id) FROM SmsRequest s")
+    Long findMaxId();
 
     void deleteById(Long id);
 } 
\ No newline at end of file
@@ -0,0 +1,23 @@
+package com.notification.repository;
+
+import com.notification.model.SmsRequest.SmsStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Status columns of an SMS request, for lookups that do not need the message itself.
+ */
+public interface SmsStatusView {
+
+    String getCorrelationId();
+
+    SmsStatus getStatus();
+
+    String getFailureCode();
+
+    String getMessageId();
+
+    LocalDateTime getCreatedAt();
+
+    LocalDateTime getUpdatedAt();
+}
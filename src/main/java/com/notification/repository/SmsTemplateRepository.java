@@ -0,0 +1,20 @@
+package com.notification.repository;
+
+import com.notification.model.SmsTemplate;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+@Repository
+public interface SmsTemplateRepository extends JpaRepository<SmsTemplate, Long> {
+
+    // Both read-write, so that outside a read-only transaction they read the primary: a
+    // template registered a moment ago may not have reached the replica yet
+    @Transactional
+    Optional<SmsTemplate> findTopByTemplateIdOrderByVersionDesc(String templateId);
+
+    @Transactional
+    Optional<SmsTemplate> findByTemplateIdAndVersion(String templateId, Integer version);
+}
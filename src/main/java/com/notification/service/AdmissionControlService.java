@@ -0,0 +1,337 @@
+package com.notification.service;
+
+import com.notification.config.ApplicationConfig;
+import com.notification.exception.ServiceOverloadedException;
+import com.notification.model.SmsRequest.SmsPriority;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.ListOffsetsResult;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission control for /sms/send.
+ *
+ * A scheduled probe samples consumer lag, Hikari connection wait time, Kafka producer
+ * buffer usage and the vendor error rate, and derives a load level from them. Requests
+ * are then admitted or shed against the cached level, so the send path never waits on
+ * a probe. HIGH priority traffic is always admitted; LOW is shed first.
+ *
+ * Consumer lag is measured per priority lane and only counts against that lane's own
+ * priority, so a LOW backlog sheds LOW sends without touching NORMAL. Pool wait, producer
+ * buffer usage and the vendor error rate are shared by all lanes and count against all.
+ *
+ * Consumer lag needs Kafka admin calls, so it is probed on its own thread rather than on
+ * the shared scheduler. The vendor error rate decays on every probe, so shedding ends
+ * once vendor errors stop even if the shed traffic was the only traffic.
+ */
+@Service
+@Slf4j
+public class AdmissionControlService {
+
+    public enum LoadLevel {
+        NORMAL,
+        ELEVATED,
+        CRITICAL
+    }
+
+    private final KafkaAdmin kafkaAdmin;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${sms.lanes.high.group-id}")
+    private String highGroupId;
+
+    @Value("${sms.lanes.normal.group-id}")
+    private String normalGroupId;
+
+    @Value("${sms.lanes.low.group-id}")
+    private String lowGroupId;
+
+    @Value("${spring.datasource.hikari.pool-name}")
+    private String primaryPoolName;
+
+    @Value("${sms.admission.consumer-lag.elevated}")
+    private long lagElevated;
+
+    @Value("${sms.admission.consumer-lag.critical}")
+    private long lagCritical;
+
+    @Value("${sms.admission.pool-wait-ms.elevated}")
+    private double poolWaitElevated;
+
+    @Value("${sms.admission.pool-wait-ms.critical}")
+    private double poolWaitCritical;
+
+    @Value("${sms.admission.producer-buffer-usage.elevated}")
+    private double bufferElevated;
+
+    @Value("${sms.admission.producer-buffer-usage.critical}")
+    private double bufferCritical;
+
+    @Value("${sms.admission.vendor-error-rate.elevated}")
+    private double vendorErrorElevated;
+
+    @Value("${sms.admission.vendor-error-rate.critical}")
+    private double vendorErrorCritical;
+
+    @Value("${sms.admission.vendor-error-rate.half-life-ms}")
+    private long vendorErrorHalfLifeMs;
+
+    @Value("${sms.admission.probe-interval-ms}")
+    private long probeIntervalMs;
+
+    @Value("${sms.admission.retry-after-seconds}")
+    private long retryAfterSeconds;
+
+    private AdminClient adminClient;
+    private ScheduledExecutorService lagProbeExecutor;
+    private final Map<SmsPriority, Counter> rejectedCounters = new EnumMap<>(SmsPriority.class);
+
+    private final Map<SmsPriority, String> laneGroupIds = new EnumMap<>(SmsPriority.class);
+    private final Map<SmsPriority, String> laneTopics = new EnumMap<>(SmsPriority.class);
+
+    // Level from the shared signals only; each lane's level adds its own lag on top
+    private volatile LoadLevel sharedLevel = LoadLevel.NORMAL;
+    private volatile Map<SmsPriority, LoadLevel> laneLevels = Collections.emptyMap();
+    private volatile Map<SmsPriority, Long> laneLags = Collections.emptyMap();
+    private volatile double poolWaitMillis;
+    private volatile double producerBufferUsage;
+    private volatile double vendorErrorRate;
+
+    private long lastAcquireCount;
+    private double lastAcquireTotalMillis;
+
+    public AdmissionControlService(KafkaAdmin kafkaAdmin, KafkaTemplate<String, String> kafkaTemplate,
+                                   MeterRegistry meterRegistry) {
+        this.kafkaAdmin = kafkaAdmin;
+        this.kafkaTemplate = kafkaTemplate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        laneGroupIds.put(SmsPriority.HIGH, highGroupId);
+        laneGroupIds.put(SmsPriority.NORMAL, normalGroupId);
+        laneGroupIds.put(SmsPriority.LOW, lowGroupId);
+        laneTopics.put(SmsPriority.HIGH, ApplicationConfig.SMS_SEND_HIGH_PRIORITY_TOPIC);
+        laneTopics.put(SmsPriority.NORMAL, ApplicationConfig.SMS_SEND_TOPIC);
+        laneTopics.put(SmsPriority.LOW, ApplicationConfig.SMS_SEND_LOW_PRIORITY_TOPIC);
+
+        adminClient = AdminClient.create(kafkaAdmin.getConfigurationProperties());
+        lagProbeExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "admission-lag-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        lagProbeExecutor.scheduleWithFixedDelay(() -> laneLags = probeConsumerLag(),
+                0, probeIntervalMs, TimeUnit.MILLISECONDS);
+        Gauge.builder("sms.admission.level", this, service -> service.getLoadLevel().ordinal())
+                .description("Highest load level of any lane: 0=NORMAL, 1=ELEVATED, 2=CRITICAL")
+                .register(meterRegistry);
+        for (SmsPriority priority : SmsPriority.values()) {
+            Gauge.builder("sms.admission.consumer.lag", this, service -> service.laneLag(priority))
+                    .tag("lane", priority.name())
+                    .register(meterRegistry);
+            Gauge.builder("sms.admission.lane.level", this, service -> service.laneLevel(priority).ordinal())
+                    .description("Load level of the lane: 0=NORMAL, 1=ELEVATED, 2=CRITICAL")
+                    .tag("lane", priority.name())
+                    .register(meterRegistry);
+            rejectedCounters.put(priority, Counter.builder("sms.admission.rejected")
+                    .tag("priority", priority.name())
+                    .register(meterRegistry));
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (lagProbeExecutor != null) {
+            lagProbeExecutor.shutdownNow();
+        }
+        if (adminClient != null) {
+            adminClient.close();
+        }
+    }
+
+    /**
+     * Rejects the request if its priority is being shed at its lane's current load level.
+     */
+    public void checkAdmission(SmsPriority priority) {
+        LoadLevel level = laneLevel(priority);
+        boolean shed = (level == LoadLevel.CRITICAL && priority != SmsPriority.HIGH)
+                || (level == LoadLevel.ELEVATED && priority == SmsPriority.LOW);
+        if (shed) {
+            rejectedCounters.get(priority).increment();
+            throw new ServiceOverloadedException("Service is overloaded, " + priority + " priority sends are temporarily rejected",
+                    retryAfterSeconds);
+        }
+    }
+
+    /**
+     * Feeds a vendor call outcome into the error rate EWMA.
+     */
+    public synchronized void recordVendorResult(boolean success) {
+        double sample = success ? 0.0 : 1.0;
+        vendorErrorRate = vendorErrorRate * 0.95 + sample * 0.05;
+    }
+
+    // Halves the error rate every half-life, whether or not vendor calls are being made
+    private synchronized void decayVendorErrorRate() {
+        vendorErrorRate *= Math.pow(0.5, (double) probeIntervalMs / vendorErrorHalfLifeMs);
+    }
+
+    public LoadLevel getLoadLevel() {
+        return max(laneLevels.values().toArray(new LoadLevel[0]));
+    }
+
+    private LoadLevel laneLevel(SmsPriority priority) {
+        LoadLevel level = laneLevels.get(priority);
+        return level != null ? level : sharedLevel;
+    }
+
+    private long laneLag(SmsPriority priority) {
+        Long lag = laneLags.get(priority);
+        return lag != null ? lag : 0;
+    }
+
+    public Map<String, Object> getSignals() {
+        Map<String, Object> signals = new HashMap<>();
+        signals.put("loadLevel", getLoadLevel());
+        signals.put("laneLevels", laneLevels);
+        signals.put("consumerLag", laneLags);
+        signals.put("poolWaitMillis", poolWaitMillis);
+        signals.put("producerBufferUsage", producerBufferUsage);
+        signals.put("vendorErrorRate", vendorErrorRate);
+        return signals;
+    }
+
+    @Scheduled(fixedDelayString = "${sms.admission.probe-interval-ms}")
+    public void probe() {
+        decayVendorErrorRate();
+        poolWaitMillis = probePoolWaitMillis();
+        producerBufferUsage = probeProducerBufferUsage();
+
+        sharedLevel = max(
+                classify(poolWaitMillis, poolWaitElevated, poolWaitCritical),
+                classify(producerBufferUsage, bufferElevated, bufferCritical),
+                classify(vendorErrorRate, vendorErrorElevated, vendorErrorCritical));
+
+        Map<SmsPriority, LoadLevel> levels = new EnumMap<>(SmsPriority.class);
+        for (SmsPriority priority : SmsPriority.values()) {
+            levels.put(priority, max(sharedLevel, classify(laneLag(priority), lagElevated, lagCritical)));
+        }
+        if (!levels.equals(laneLevels)) {
+            Map<SmsPriority, LoadLevel> previous = laneLevels;
+            laneLevels = levels;
+            log.warn("Load levels changed from {} to {}: {}", previous, levels, getSignals());
+        }
+    }
+
+    // Lag of each lane's own consumer group on its own topic
+    private Map<SmsPriority, Long> probeConsumerLag() {
+        try {
+            Map<SmsPriority, Long> lags = new EnumMap<>(SmsPriority.class);
+            for (Map.Entry<SmsPriority, String> lane : laneGroupIds.entrySet()) {
+                String topic = laneTopics.get(lane.getKey());
+                Map<TopicPartition, OffsetAndMetadata> committed = adminClient.listConsumerGroupOffsets(lane.getValue())
+                        .partitionsToOffsetAndMetadata().get(500, TimeUnit.MILLISECONDS);
+
+                Map<TopicPartition, OffsetSpec> latestRequest = new HashMap<>();
+                for (TopicPartition partition : committed.keySet()) {
+                    if (topic.equals(partition.topic())) {
+                        latestRequest.put(partition, OffsetSpec.latest());
+                    }
+                }
+                Map<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> latest = adminClient.listOffsets(latestRequest)
+                        .all().get(500, TimeUnit.MILLISECONDS);
+
+                long lag = 0;
+                for (Map.Entry<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> entry : latest.entrySet()) {
+                    OffsetAndMetadata offset = committed.get(entry.getKey());
+                    if (offset != null) {
+                        lag += Math.max(0, entry.getValue().offset() - offset.offset());
+                    }
+                }
+                lags.put(lane.getKey(), lag);
+            }
+            return lags;
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            log.debug("Consumer lag probe failed, keeping last values", e);
+            return laneLags;
+        }
+    }
+
+    private double probePoolWaitMillis() {
+        // Only the primary pool matters here; replica waits do not slow the send path
+        Timer acquire = meterRegistry.find("hikaricp.connections.acquire").tag("pool", primaryPoolName).timer();
+        if (acquire == null) {
+            return 0;
+        }
+        long count = acquire.count();
+        double totalMillis = acquire.totalTime(TimeUnit.MILLISECONDS);
+        long deltaCount = count - lastAcquireCount;
+        double deltaMillis = totalMillis - lastAcquireTotalMillis;
+        lastAcquireCount = count;
+        lastAcquireTotalMillis = totalMillis;
+        return deltaCount > 0 ? deltaMillis / deltaCount : 0;
+    }
+
+    private double probeProducerBufferUsage() {
+        double available = -1;
+        double total = -1;
+        for (Map.Entry<MetricName, ? extends Metric> entry : kafkaTemplate.metrics().entrySet()) {
+            MetricName name = entry.getKey();
+            if (!"producer-metrics".equals(name.group())) {
+                continue;
+            }
+            if ("buffer-available-bytes".equals(name.name())) {
+                available = ((Number) entry.getValue().metricValue()).doubleValue();
+            } else if ("buffer-total-bytes".equals(name.name())) {
+                total = ((Number) entry.getValue().metricValue()).doubleValue();
+            }
+        }
+        return available < 0 || total <= 0 ? 0 : 1.0 - available / total;
+    }
+
+    private LoadLevel classify(double value, double elevated, double critical) {
+        if (value >= critical) {
+            return LoadLevel.CRITICAL;
+        }
+        return value >= elevated ? LoadLevel.ELEVATED : LoadLevel.NORMAL;
+    }
+
+    private LoadLevel max(LoadLevel... levels) {
+        LoadLevel result = LoadLevel.NORMAL;
+        for (LoadLevel level : levels) {
+            if (level.ordinal() > result.ordinal()) {
+                result = level;
+            }
+        }
+        return result;
+    }
+}
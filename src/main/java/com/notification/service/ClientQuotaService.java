@@ -0,0 +1,335 @@
+package com.notification.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-client request and message quotas.
+ *
+ * Counting happens in local sliding-window counters so the check never leaves the JVM.
+ * Every sync interval the local deltas are pushed to Redis and the cluster-wide totals
+ * read back, so each instance also accounts for what the client sent to its peers.
+ *
+ * Client state is dropped once a client has been idle for two windows, and the least
+ * recently seen clients beyond max-clients are dropped right after their usage was
+ * pushed to Redis, so a flood of distinct credentials cannot grow the map without bound.
+ * The heaviest top-clients clients per quota type are published as a gauge tagged by
+ * client id; the set is replaced on every sync, so the number of meters stays bounded.
+ */
+@Service
+@Slf4j
+public class ClientQuotaService {
+
+    private static final String QUOTA_KEY_PREFIX = "sms:quota:";
+
+    public enum QuotaType {
+        REQUESTS,
+        MESSAGES
+    }
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final long windowMillis;
+    private final long requestsPerWindow;
+    private final long messagesPerWindow;
+    private final int maxClients;
+    private final int topClients;
+
+    private final Map<String, ClientState> clients = new ConcurrentHashMap<>();
+
+    // Not tagged by client: any caller can send a new Authorization value, and every
+    // distinct tag value would be a meter that is never released
+    private final List<Counter> outcomes = new ArrayList<>(4);
+
+    // Tagged by client, but only for the current top clients
+    private final MultiGauge topClientUsage;
+
+    public ClientQuotaService(RedisTemplate<String, String> redisTemplate,
+                              MeterRegistry meterRegistry,
+                              @Value("${sms.client-quota.window-seconds}") long windowSeconds,
+                              @Value("${sms.client-quota.requests-per-window}") long requestsPerWindow,
+                              @Value("${sms.client-quota.messages-per-window}") long messagesPerWindow,
+                              @Value("${sms.client-quota.max-clients}") int maxClients,
+                              @Value("${sms.client-quota.top-clients}") int topClients) {
+        this.redisTemplate = redisTemplate;
+        this.windowMillis = windowSeconds * 1000;
+        this.requestsPerWindow = requestsPerWindow;
+        this.messagesPerWindow = messagesPerWindow;
+        this.maxClients = maxClients;
+        this.topClients = topClients;
+        this.topClientUsage = MultiGauge.builder("client.quota.top.usage")
+                .description("Cluster-wide units in the sliding window of the heaviest clients")
+                .register(meterRegistry);
+        for (QuotaType type : QuotaType.values()) {
+            for (String outcome : new String[]{"allowed", "throttled"}) {
+                outcomes.add(Counter.builder("client.quota.usage")
+                        .description("Units counted against per-client quotas")
+                        .tag("type", type.name().toLowerCase())
+                        .tag("outcome", outcome)
+                        .register(meterRegistry));
+            }
+        }
+    }
+
+    /**
+     * Derives a stable client id from the auth credential. The credential itself is never
+     * used as a Redis key or metric tag.
+     */
+    public String resolveClientId(String credential) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(credential.getBytes(StandardCharsets.UTF_8));
+            StringBuilder clientId = new StringBuilder(16);
+            for (int i = 0; i < 8; i++) {
+                clientId.append(String.format("%02x", digest[i]));
+            }
+            return clientId.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Counts one unit against the client's quota.
+     *
+     * @return 0 if the unit is admitted, otherwise the number of seconds the client should wait
+     */
+    public long tryAcquire(String clientId, QuotaType type) {
+        ClientState state = clients.computeIfAbsent(clientId, key -> new ClientState());
+        state.lastSeenMillis = System.currentTimeMillis();
+        SlidingWindowCounter counter = type == QuotaType.REQUESTS ? state.requests : state.messages;
+        long limit = type == QuotaType.REQUESTS ? requestsPerWindow : messagesPerWindow;
+
+        long retryAfterMillis = counter.tryAcquire(System.currentTimeMillis(), limit);
+        if (retryAfterMillis > 0) {
+            outcomes.get(type.ordinal() * 2 + 1).increment();
+            return Math.max(1, (retryAfterMillis + 999) / 1000);
+        }
+        outcomes.get(type.ordinal() * 2).increment();
+        return 0;
+    }
+
+    @Scheduled(fixedDelayString = "${sms.client-quota.sync-interval-ms}")
+    public void reconcileWithRedis() {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<String, ClientState>> iterator = clients.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, ClientState> entry = iterator.next();
+            ClientState state = entry.getValue();
+            if (state.requests.isIdle(now) && state.messages.isIdle(now)) {
+                iterator.remove();
+                continue;
+            }
+            try {
+                reconcile(entry.getKey(), QuotaType.REQUESTS, state.requests, now);
+                reconcile(entry.getKey(), QuotaType.MESSAGES, state.messages, now);
+            } catch (DataAccessException e) {
+                log.warn("Failed to reconcile quota counters for client {}, enforcing local counts only", entry.getKey(), e);
+            }
+        }
+        evictLeastRecentlySeen();
+        publishTopClients(now);
+    }
+
+    // Their usage was just pushed to Redis, so a returning client picks it up on its next sync
+    private void evictLeastRecentlySeen() {
+        int excess = clients.size() - maxClients;
+        if (excess <= 0) {
+            return;
+        }
+        List<Map.Entry<String, ClientState>> entries = new ArrayList<>(clients.entrySet());
+        entries.sort(Comparator.comparingLong(entry -> entry.getValue().lastSeenMillis));
+        for (int i = 0; i < excess; i++) {
+            clients.remove(entries.get(i).getKey(), entries.get(i).getValue());
+        }
+        log.warn("Tracking more than {} quota clients, dropped the {} least recently seen", maxClients, excess);
+    }
+
+    private void publishTopClients(long now) {
+        List<MultiGauge.Row<?>> rows = new ArrayList<>();
+        for (QuotaType type : QuotaType.values()) {
+            List<Map.Entry<String, Long>> usage = new ArrayList<>(clients.size());
+            for (Map.Entry<String, ClientState> entry : clients.entrySet()) {
+                SlidingWindowCounter counter = type == QuotaType.REQUESTS ? entry.getValue().requests : entry.getValue().messages;
+                usage.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), counter.usage(now)));
+            }
+            usage.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+            for (Map.Entry<String, Long> entry : usage.subList(0, Math.min(topClients, usage.size()))) {
+                rows.add(MultiGauge.Row.of(Tags.of("client", entry.getKey(), "type", type.name().toLowerCase()),
+                        entry.getValue()));
+            }
+        }
+        topClientUsage.register(rows, true);
+    }
+
+    private void reconcile(String clientId, QuotaType type, SlidingWindowCounter counter, long now) {
+        SlidingWindowCounter.Delta delta = counter.drain(now);
+        String currentKey = quotaKey(clientId, type, delta.window);
+        String previousKey = quotaKey(clientId, type, delta.window - 1);
+        long ttlSeconds = windowMillis * 2 / 1000;
+
+        List<Object> results;
+        try {
+            results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                if (delta.previous > 0) {
+                    increment(connection, previousKey, delta.previous, ttlSeconds);
+                }
+                increment(connection, currentKey, delta.current, ttlSeconds);
+                connection.stringCommands().get(previousKey.getBytes(StandardCharsets.UTF_8));
+                return null;
+            });
+        } catch (DataAccessException e) {
+            // Keep the usage for the next sync rather than losing it
+            counter.restore(delta);
+            throw e;
+        }
+
+        // Pipeline results: [incrBy previous, expire previous]?, incrBy current, expire current, get previous
+        int offset = delta.previous > 0 ? 2 : 0;
+        long clusterCurrent = toLong(results.get(offset));
+        long clusterPrevious = toLong(results.get(offset + 2));
+        counter.applyClusterTotals(delta.window, clusterCurrent, clusterPrevious);
+    }
+
+    private void increment(RedisConnection connection, String key, long by, long ttlSeconds) {
+        byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+        connection.stringCommands().incrBy(rawKey, by);
+        connection.keyCommands().expire(rawKey, ttlSeconds);
+    }
+
+    private long toLong(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        return value instanceof Number ? ((Number) value).longValue() : Long.parseLong(value.toString());
+    }
+
+    private String quotaKey(String clientId, QuotaType type, long window) {
+        return QUOTA_KEY_PREFIX + clientId + ":" + type.name().toLowerCase() + ":" + window;
+    }
+
+    private class ClientState {
+        private final SlidingWindowCounter requests = new SlidingWindowCounter(windowMillis);
+        private final SlidingWindowCounter messages = new SlidingWindowCounter(windowMillis);
+        private volatile long lastSeenMillis;
+    }
+
+    /**
+     * Two-bucket sliding window: the previous window's count is weighted by how much of
+     * it still overlaps the sliding window. Local and cluster-wide counts are tracked
+     * separately so that reconciliation never double counts this instance's traffic.
+     */
+    static class SlidingWindowCounter {
+
+        private final long windowMillis;
+        private long window;
+        private long localCurrent;
+        private long localPrevious;
+        private long clusterCurrent;
+        private long clusterPrevious;
+        private long unsyncedCurrent;
+        private long unsyncedPrevious;
+
+        SlidingWindowCounter(long windowMillis) {
+            this.windowMillis = windowMillis;
+        }
+
+        synchronized long tryAcquire(long now, long limit) {
+            roll(now);
+            double previousWeight = 1.0 - (double) (now % windowMillis) / windowMillis;
+            double estimate = Math.max(localPrevious, clusterPrevious) * previousWeight
+                    + Math.max(localCurrent, clusterCurrent + unsyncedCurrent);
+            if (estimate + 1 > limit) {
+                return windowMillis - now % windowMillis;
+            }
+            localCurrent++;
+            unsyncedCurrent++;
+            return 0;
+        }
+
+        // The same estimate tryAcquire checks against the limit
+        synchronized long usage(long now) {
+            roll(now);
+            double previousWeight = 1.0 - (double) (now % windowMillis) / windowMillis;
+            return Math.round(Math.max(localPrevious, clusterPrevious) * previousWeight
+                    + Math.max(localCurrent, clusterCurrent + unsyncedCurrent));
+        }
+
+        synchronized Delta drain(long now) {
+            roll(now);
+            Delta delta = new Delta(window, unsyncedCurrent, unsyncedPrevious);
+            unsyncedCurrent = 0;
+            unsyncedPrevious = 0;
+            return delta;
+        }
+
+        synchronized void restore(Delta delta) {
+            if (delta.window == window) {
+                unsyncedCurrent += delta.current;
+                unsyncedPrevious += delta.previous;
+            } else if (delta.window == window - 1) {
+                unsyncedPrevious += delta.current;
+            }
+        }
+
+        synchronized void applyClusterTotals(long syncedWindow, long current, long previous) {
+            if (syncedWindow == window) {
+                clusterCurrent = current;
+                clusterPrevious = previous;
+            } else if (syncedWindow == window - 1) {
+                clusterPrevious = current;
+            }
+        }
+
+        synchronized boolean isIdle(long now) {
+            roll(now);
+            return localCurrent == 0 && localPrevious == 0 && unsyncedPrevious == 0;
+        }
+
+        private void roll(long now) {
+            long nowWindow = now / windowMillis;
+            if (nowWindow == window) {
+                return;
+            }
+            boolean adjacent = nowWindow == window + 1;
+            localPrevious = adjacent ? localCurrent : 0;
+            clusterPrevious = adjacent ? clusterCurrent : 0;
+            unsyncedPrevious = adjacent ? unsyncedCurrent : 0;
+            localCurrent = 0;
+            clusterCurrent = 0;
+            unsyncedCurrent = 0;
+            window = nowWindow;
+        }
+
+        static class Delta {
+            final long window;
+            final long current;
+            final long previous;
+
+            Delta(long window, long current, long previous) {
+                this.window = window;
+                this.current = current;
+                this.previous = previous;
+            }
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.notification.service;
+
+import com.notification.model.SmsRequest.SmsStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-minute and per-hour delivery outcome counts, merged across instances.
+ *
+ * Consumers count terminal transitions into striped {@link LongAdder}s in a small ring of
+ * per-minute buckets, so recording never takes a lock. A scheduled flush moves the deltas
+ * into one Redis hash per minute and per hour, which all instances add to, then reads the
+ * recent hashes back into an immutable snapshot. The stats endpoint only returns that
+ * snapshot, so it never touches Redis, MySQL or Elasticsearch.
+ *
+ * Each flush is applied by one Lua script under a flush id unique to this instance, and
+ * the script records the id, so a flush is applied entirely or not at all, and exactly
+ * once. A flush that fails is kept and retried under the same id, which cannot double
+ * count even if the failed attempt did reach Redis. While Redis stays down, at most
+ * max-pending-flushes are kept; older ones are dropped and counted in
+ * sms.stats.deltas.dropped.
+ */
+@Service
+@Slf4j
+public class DeliveryStatsService {
+
+    private static final String MINUTE_KEY_PREFIX = "sms:stats:m:";
+    private static final String HOUR_KEY_PREFIX = "sms:stats:h:";
+    private static final int RING_SIZE = 8;
+    private static final long MINUTE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final String FLUSH_KEY_PREFIX = "sms:stats:flush:";
+
+    // KEYS: flush id marker, then a minute and an hour key per delta.
+    // ARGV: marker TTL, minute TTL, hour TTL, then a field and a count per delta.
+    private static final RedisScript<Long> PUSH_SCRIPT = new DefaultRedisScript<>(
+            "if not redis.call('set', KEYS[1], '1', 'nx', 'ex', ARGV[1]) then return 0 end "
+                    + "for i = 2, #KEYS, 2 do "
+                    + "local field = ARGV[i + 2] local count = ARGV[i + 3] "
+                    + "redis.call('hincrby', KEYS[i], field, count) redis.call('expire', KEYS[i], ARGV[2]) "
+                    + "redis.call('hincrby', KEYS[i + 1], field, count) redis.call('expire', KEYS[i + 1], ARGV[3]) "
+                    + "end return 1",
+            Long.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final int snapshotMinutes;
+    private final int snapshotHours;
+    private final int maxPendingFlushes;
+    private final Counter droppedDeltas;
+
+    private final String instanceId = UUID.randomUUID().toString();
+    private long flushSequence;
+
+    private final AtomicReferenceArray<Bucket> ring = new AtomicReferenceArray<>(RING_SIZE);
+    // Flushes that failed, oldest first; only touched by the scheduled flush
+    private final Deque<Flush> pendingFlushes = new ArrayDeque<>();
+    private volatile Map<String, Object> snapshot = Collections.emptyMap();
+
+    public DeliveryStatsService(RedisTemplate<String, String> redisTemplate,
+                                MeterRegistry meterRegistry,
+                                @Value("${sms.stats.snapshot-minutes}") int snapshotMinutes,
+                                @Value("${sms.stats.snapshot-hours}") int snapshotHours,
+                                @Value("${sms.stats.max-pending-flushes}") int maxPendingFlushes) {
+        this.redisTemplate = redisTemplate;
+        this.snapshotMinutes = snapshotMinutes;
+        this.snapshotHours = snapshotHours;
+        this.maxPendingFlushes = maxPendingFlushes;
+        this.droppedDeltas = Counter.builder("sms.stats.deltas.dropped")
+                .description("Delivery stats deltas given up on while Redis was unavailable")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Counts a request reaching a terminal status, by status and by status and failure code.
+     */
+    public void record(SmsStatus status, String failureCode) {
+        Bucket bucket = currentBucket(System.currentTimeMillis() / MINUTE_MILLIS);
+        bucket.increment(status.name());
+        if (failureCode != null) {
+            bucket.increment(status.name() + ":" + failureCode);
+        }
+    }
+
+    public Map<String, Object> getSnapshot() {
+        return snapshot;
+    }
+
+    @Scheduled(fixedDelayString = "${sms.stats.flush-interval-ms}")
+    public void flush() {
+        List<Delta> deltas = drain();
+        if (!deltas.isEmpty()) {
+            pendingFlushes.addLast(new Flush(instanceId + ":" + flushSequence++, deltas));
+        }
+        while (!pendingFlushes.isEmpty()) {
+            try {
+                push(pendingFlushes.peekFirst());
+                pendingFlushes.removeFirst();
+            } catch (DataAccessException e) {
+                log.warn("Failed to flush delivery stats, keeping {} flushes for the next attempt", pendingFlushes.size(), e);
+                dropOldestFlushes();
+                return;
+            }
+        }
+
+        try {
+            snapshot = readSnapshot(System.currentTimeMillis());
+        } catch (DataAccessException e) {
+            log.warn("Failed to refresh delivery stats snapshot, serving the previous one", e);
+        }
+    }
+
+    private Bucket currentBucket(long minute) {
+        int slot = (int) (minute % RING_SIZE);
+        while (true) {
+            Bucket bucket = ring.get(slot);
+            if (bucket != null && bucket.minute == minute) {
+                return bucket;
+            }
+            // A stale bucket is only replaced long after its last flush
+            if (ring.compareAndSet(slot, bucket, new Bucket(minute))) {
+                return ring.get(slot);
+            }
+        }
+    }
+
+    private List<Delta> drain() {
+        List<Delta> deltas = new ArrayList<>();
+        for (int slot = 0; slot < RING_SIZE; slot++) {
+            Bucket bucket = ring.get(slot);
+            if (bucket == null) {
+                continue;
+            }
+            for (Map.Entry<String, LongAdder> entry : bucket.counts.entrySet()) {
+                long count = entry.getValue().sumThenReset();
+                if (count > 0) {
+                    deltas.add(new Delta(bucket.minute, entry.getKey(), count));
+                }
+            }
+        }
+        return deltas;
+    }
+
+    private void dropOldestFlushes() {
+        while (pendingFlushes.size() > maxPendingFlushes) {
+            Flush dropped = pendingFlushes.removeFirst();
+            droppedDeltas.increment(dropped.deltas.size());
+            log.warn("Dropped delivery stats flush {} with {} deltas", dropped.id, dropped.deltas.size());
+        }
+    }
+
+    private void push(Flush flush) {
+        long minuteTtl = TimeUnit.MINUTES.toSeconds(snapshotMinutes) * 2;
+        long hourTtl = TimeUnit.HOURS.toSeconds(snapshotHours) * 2;
+        List<String> keys = new ArrayList<>(1 + flush.deltas.size() * 2);
+        List<String> args = new ArrayList<>(3 + flush.deltas.size() * 2);
+        keys.add(FLUSH_KEY_PREFIX + flush.id);
+        // The marker must outlive every retry of the flush
+        args.add(String.valueOf(minuteTtl));
+        args.add(String.valueOf(minuteTtl));
+        args.add(String.valueOf(hourTtl));
+        for (Delta delta : flush.deltas) {
+            keys.add(MINUTE_KEY_PREFIX + delta.minute);
+            keys.add(HOUR_KEY_PREFIX + delta.minute * MINUTE_MILLIS / HOUR_MILLIS);
+            args.add(delta.field);
+            args.add(String.valueOf(delta.count));
+        }
+        redisTemplate.execute(PUSH_SCRIPT, keys, args.toArray());
+    }
+
+    private Map<String, Object> readSnapshot(long now) {
+        long currentMinute = now / MINUTE_MILLIS;
+        long currentHour = now / HOUR_MILLIS;
+
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (int i = 0; i < snapshotMinutes; i++) {
+                connection.hashCommands().hGetAll(bytes(MINUTE_KEY_PREFIX + (currentMinute - i)));
+            }
+            for (int i = 0; i < snapshotHours; i++) {
+                connection.hashCommands().hGetAll(bytes(HOUR_KEY_PREFIX + (currentHour - i)));
+            }
+            return null;
+        });
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("generatedAt", Instant.ofEpochMilli(now).toString());
+        result.put("minutes", toSeries(results.subList(0, snapshotMinutes), currentMinute, MINUTE_MILLIS));
+        result.put("hours", toSeries(results.subList(snapshotMinutes, results.size()), currentHour, HOUR_MILLIS));
+        return Collections.unmodifiableMap(result);
+    }
+
+    private List<Map<String, Object>> toSeries(List<Object> hashes, long current, long periodMillis) {
+        List<Map<String, Object>> series = new ArrayList<>(hashes.size());
+        for (int i = 0; i < hashes.size(); i++) {
+            Map<?, ?> hash = (Map<?, ?>) hashes.get(i);
+            if (hash == null || hash.isEmpty()) {
+                continue;
+            }
+            Map<String, Long> counts = new TreeMap<>();
+            for (Map.Entry<?, ?> entry : hash.entrySet()) {
+                counts.put(entry.getKey().toString(), Long.parseLong(entry.getValue().toString()));
+            }
+            Map<String, Object> point = new HashMap<>(4);
+            point.put("start", Instant.ofEpochMilli((current - i) * periodMillis).toString());
+            point.put("counts", counts);
+            series.add(point);
+        }
+        return series;
+    }
+
+    private byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static final class Bucket {
+        private final long minute;
+        private final Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+
+        Bucket(long minute) {
+            this.minute = minute;
+        }
+
+        void increment(String field) {
+            LongAdder adder = counts.get(field);
+            if (adder == null) {
+                adder = counts.computeIfAbsent(field, key -> new LongAdder());
+            }
+            adder.increment();
+        }
+    }
+
+    private static final class Delta {
+        private final long minute;
+        private final String field;
+        private final long count;
+
+        Delta(long minute, String field, long count) {
+            this.minute = minute;
+            this.field = field;
+            this.count = count;
+        }
+    }
+
+    private static final class Flush {
+        private final String id;
+        private final List<Delta> deltas;
+
+        Flush(String id, List<Delta> deltas) {
+            this.id = id;
+            this.deltas = deltas;
+        }
+    }
+}
@@ -3,17 +3,27 @@ package com.notification.service;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.notification.config.ApplicationConfig;
 import com.notification.model.SmsRequest;
+import com.notification.util.CircuitBreaker;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest;
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequest;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.GetAliasesResponse;
+import org.elasticsearch.client.indices.CreateIndexRequest;
+import org.elasticsearch.client.indices.GetIndexRequest;
 import org.elasticsearch.xcontent.XContentType;
 import org.elasticsearch.index.query.BoolQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.index.query.RangeQueryBuilder;
+import org.elasticsearch.script.Script;
+import org.elasticsearch.script.ScriptType;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.sort.SortOrder;
@@ -21,12 +31,16 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -35,34 +49,136 @@ import java.util.Map;
 @Slf4j
 public class ElasticsearchService {
 
+    static final String VERSION_FIELD = "statusVersion";
+
+    // Applies a write only if it is at least as new as the indexed document
+    private static final String UPSERT_SCRIPT =
+            "if (ctx._source." + VERSION_FIELD + " == null || params.doc." + VERSION_FIELD + " >= ctx._source." + VERSION_FIELD + ") {"
+                    + " ctx._source.putAll(params.doc); } else { ctx.op = 'none'; }";
+
     private final RestHighLevelClient elasticsearchClient;
     private final ObjectMapper objectMapper;
+    private final TemplateService templateService;
 
-    public void indexSmsRequest(SmsRequest smsRequest) {
-        try {
-            Map<String, Object> document = objectMapper.convertValue(smsRequest, Map.class);
-            
-            // Convert LocalDateTime to string for Elasticsearch
-            if (document.containsKey("createdAt")) {
-                document.put("createdAt", smsRequest.getCreatedAt().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-            }
-            if (document.containsKey("updatedAt")) {
-                document.put("updatedAt", smsRequest.getUpdatedAt().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+    @Value("${elasticsearch.circuit-breaker.failure-threshold}")
+    private int breakerFailureThreshold;
+
+    @Value("${elasticsearch.circuit-breaker.open-millis}")
+    private long breakerOpenMillis;
+
+    private volatile boolean healthy = true;
+    private CircuitBreaker searchCircuitBreaker;
+
+    @PostConstruct
+    public void initCircuitBreaker() {
+        searchCircuitBreaker = new CircuitBreaker("elasticsearch-search", breakerFailureThreshold, breakerOpenMillis);
+    }
+
+    /**
+     * Whether searches should be attempted against Elasticsearch at all. False while the
+     * last health probe failed or while the search circuit breaker is open.
+     */
+    public boolean isSearchAvailable() {
+        return healthy && searchCircuitBreaker.allowRequest();
+    }
+
+    public CircuitBreaker getSearchCircuitBreaker() {
+        return searchCircuitBreaker;
+    }
+
+    public Map<String, Object> toDocument(SmsRequest smsRequest) {
+        Map<String, Object> document = objectMapper.convertValue(smsRequest, Map.class);
+
+        // Template sends store no text; index the rendered body so text search finds them
+        if (smsRequest.getTemplateId() != null) {
+            try {
+                document.put("message", templateService.renderMessage(smsRequest));
+            } catch (RuntimeException e) {
+                log.warn("Could not render template {} for correlation ID: {}: {}",
+                        smsRequest.getTemplateId(), smsRequest.getCorrelationId(), e.getMessage());
             }
+        }
 
-            IndexRequest indexRequest = new IndexRequest(ApplicationConfig.SMS_INDEX)
-                    .id(smsRequest.getCorrelationId())
-                    .source(document, XContentType.JSON);
+        // Convert LocalDateTime to string for Elasticsearch
+        if (document.containsKey("createdAt")) {
+            document.put("createdAt", smsRequest.getCreatedAt().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        }
+        if (document.containsKey("updatedAt")) {
+            document.put("updatedAt", smsRequest.getUpdatedAt().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        }
+        return document;
+    }
 
-            elasticsearchClient.index(indexRequest, RequestOptions.DEFAULT);
-            log.info("Successfully indexed SMS request with correlation ID: {}", smsRequest.getCorrelationId());
-            
-        } catch (IOException e) {
-            log.error("Error indexing SMS request with correlation ID: {}", smsRequest.getCorrelationId(), e);
-            throw new RuntimeException("Failed to index SMS request", e);
+    /**
+     * Creates or updates a document with {@code fields}, unless the indexed document
+     * already carries a newer statusVersion than {@code fields}, in which case it is a
+     * no-op. Every writer of SMS documents goes through this, so the order in which the
+     * writes arrive never matters.
+     */
+    UpdateRequest versionedUpsert(String index, String id, Map<String, Object> fields) {
+        return new UpdateRequest(index, id)
+                .script(new Script(ScriptType.INLINE, Script.DEFAULT_SCRIPT_LANG, UPSERT_SCRIPT,
+                        Collections.<String, Object>singletonMap("doc", fields)))
+                .scriptedUpsert(true)
+                .upsert(Collections.<String, Object>emptyMap())
+                .retryOnConflict(3);
+    }
+
+    static long statusVersion(SmsRequest smsRequest) {
+        return smsRequest.getVersion() != null ? smsRequest.getVersion() : 0;
+    }
+
+    public void createIndex(String index, String mappingJson) throws IOException {
+        CreateIndexRequest request = new CreateIndexRequest(index);
+        if (mappingJson != null && !mappingJson.trim().isEmpty()) {
+            request.mapping(mappingJson, XContentType.JSON);
+        }
+        elasticsearchClient.indices().create(request, RequestOptions.DEFAULT);
+        log.info("Created Elasticsearch index: {}", index);
+    }
+
+    public void bulkIndex(String index, List<SmsRequest> smsRequests) throws IOException {
+        if (smsRequests.isEmpty()) {
+            return;
+        }
+        // Versioned like the live updates, so a row read before a status transition cannot
+        // overwrite the transition already dual-written into the index
+        BulkRequest bulkRequest = new BulkRequest();
+        for (SmsRequest smsRequest : smsRequests) {
+            Map<String, Object> document = toDocument(smsRequest);
+            document.put(VERSION_FIELD, statusVersion(smsRequest));
+            bulkRequest.add(versionedUpsert(index, smsRequest.getCorrelationId(), document));
+        }
+        BulkResponse response = elasticsearchClient.bulk(bulkRequest, RequestOptions.DEFAULT);
+        if (response.hasFailures()) {
+            throw new IOException("Bulk indexing into " + index + " failed: " + response.buildFailureMessage());
         }
     }
 
+    public BulkResponse bulk(BulkRequest bulkRequest) throws IOException {
+        return elasticsearchClient.bulk(bulkRequest, RequestOptions.DEFAULT);
+    }
+
+    /**
+     * Atomically points {@code alias} at {@code index}, detaching it from every index it
+     * pointed at before. If a concrete index still carries the alias name (the layout
+     * before the first reindex), that index is removed in the same request.
+     */
+    public void switchAlias(String alias, String index) throws IOException {
+        IndicesAliasesRequest request = new IndicesAliasesRequest();
+        GetAliasesResponse current = elasticsearchClient.indices().getAlias(new GetAliasesRequest(alias), RequestOptions.DEFAULT);
+        for (String oldIndex : current.getAliases().keySet()) {
+            request.addAliasAction(IndicesAliasesRequest.AliasActions.remove().index(oldIndex).alias(alias));
+        }
+        if (current.getAliases().isEmpty()
+                && elasticsearchClient.indices().exists(new GetIndexRequest(alias), RequestOptions.DEFAULT)) {
+            request.addAliasAction(IndicesAliasesRequest.AliasActions.removeIndex().index(alias));
+        }
+        request.addAliasAction(IndicesAliasesRequest.AliasActions.add().index(index).alias(alias));
+        elasticsearchClient.indices().updateAliases(request, RequestOptions.DEFAULT);
+        log.info("Alias {} now points to index {}", alias, index);
+    }
+
     public Page<SmsRequest> searchSmsByPhoneNumberAndTimeRange(String phoneNumber, LocalDateTime startTime, 
                                                               LocalDateTime endTime, Pageable pageable) {
         try {
@@ -74,10 +190,12 @@ public class ElasticsearchService {
 
             SearchRequest searchRequest = buildSearchRequest(queryBuilder, pageable);
             SearchResponse response = elasticsearchClient.search(searchRequest, RequestOptions.DEFAULT);
+            searchCircuitBreaker.recordSuccess();
             
             return parseSearchResponse(response, pageable);
             
-        } catch (IOException e) {
+        } catch (IOException | RuntimeException e) {
+            searchCircuitBreaker.recordFailure();
             log.error("Error searching SMS by phone number and time range: {}", phoneNumber, e);
             throw new RuntimeException("Failed to search SMS requests", e);
         }
@@ -127,13 +245,23 @@ public class ElasticsearchService {
         return new PageImpl<>(smsRequests, pageable, totalHits);
     }
 
+    /**
+     * Returns the result of the last scheduled probe; never calls Elasticsearch itself.
+     */
     public boolean isHealthy() {
+        return healthy;
+    }
+
+    @Scheduled(fixedDelayString = "${elasticsearch.health.probe-interval-ms}")
+    public void probeHealth() {
         try {
             // Simple ping to check if Elasticsearch is responding
-            return elasticsearchClient.ping(RequestOptions.DEFAULT);
+            healthy = elasticsearchClient.ping(RequestOptions.DEFAULT);
         } catch (IOException e) {
-            log.error("Elasticsearch health check failed", e);
-            return false;
+            if (healthy) {
+                log.error("Elasticsearch health check failed", e);
+            }
+            healthy = false;
         }
     }
 } 
\ No newline at end of file
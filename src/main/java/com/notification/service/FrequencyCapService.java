@@ -0,0 +1,199 @@
+package com.notification.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.notification.model.SmsRequest.SmsPriority;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-recipient SMS frequency caps, per priority class, over a minute, an hour and a day.
+ * Email and push are not capped.
+ *
+ * Each recipient has one small Redis hash per priority and stage holding a current and a
+ * previous bucket per window; a window's count is the current bucket plus the previous one
+ * weighted by how much of it still overlaps the sliding window. A check is one pipelined
+ * round trip that also increments the buckets and drops expired ones, so the hash never
+ * holds more than two buckets per window. Recipients found over their cap are remembered
+ * locally until the cap frees up, so a flood for one number stops hitting Redis at all.
+ *
+ * Accepted and dispatched messages are counted separately: the send path caps what is
+ * accepted, the consumer caps what actually goes out when a backlog drains in a burst.
+ * Redis errors fail open.
+ */
+@Service
+@Slf4j
+public class FrequencyCapService {
+
+    private static final String KEY_PREFIX = "sms:fcap:";
+    private static final long KEY_TTL_SECONDS = TimeUnit.DAYS.toSeconds(2);
+
+    public enum Stage {
+        ACCEPT,
+        DISPATCH
+    }
+
+    private enum Window {
+        MINUTE('m', TimeUnit.MINUTES.toMillis(1)),
+        HOUR('h', TimeUnit.HOURS.toMillis(1)),
+        DAY('d', TimeUnit.DAYS.toMillis(1));
+
+        private final char field;
+        private final long millis;
+
+        Window(char field, long millis) {
+            this.field = field;
+            this.millis = millis;
+        }
+    }
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Map<SmsPriority, long[]> caps = new EnumMap<>(SmsPriority.class);
+    private final Cache<String, Long> cappedUntil;
+
+    public FrequencyCapService(RedisTemplate<String, String> redisTemplate,
+                               MeterRegistry meterRegistry,
+                               @Value("${sms.frequency-caps.local-cache-size}") long localCacheSize,
+                               @Value("${sms.frequency-caps.high.per-minute}") long highPerMinute,
+                               @Value("${sms.frequency-caps.high.per-hour}") long highPerHour,
+                               @Value("${sms.frequency-caps.high.per-day}") long highPerDay,
+                               @Value("${sms.frequency-caps.normal.per-minute}") long normalPerMinute,
+                               @Value("${sms.frequency-caps.normal.per-hour}") long normalPerHour,
+                               @Value("${sms.frequency-caps.normal.per-day}") long normalPerDay,
+                               @Value("${sms.frequency-caps.low.per-minute}") long lowPerMinute,
+                               @Value("${sms.frequency-caps.low.per-hour}") long lowPerHour,
+                               @Value("${sms.frequency-caps.low.per-day}") long lowPerDay) {
+        this.redisTemplate = redisTemplate;
+        this.meterRegistry = meterRegistry;
+        // Indexed by Window ordinal; 0 means no cap for that window
+        caps.put(SmsPriority.HIGH, new long[]{highPerMinute, highPerHour, highPerDay});
+        caps.put(SmsPriority.NORMAL, new long[]{normalPerMinute, normalPerHour, normalPerDay});
+        caps.put(SmsPriority.LOW, new long[]{lowPerMinute, lowPerHour, lowPerDay});
+        this.cappedUntil = Caffeine.newBuilder()
+                .maximumSize(localCacheSize)
+                .expireAfterWrite(10, TimeUnit.MINUTES)
+                .build();
+    }
+
+    /**
+     * Counts one message to the recipient against the caps of its priority class.
+     *
+     * @return 0 if the message is within the caps, otherwise the number of seconds until
+     * the recipient can receive another message of this class
+     */
+    public long tryAcquire(String phoneNumber, SmsPriority priority, Stage stage) {
+        long[] limits = caps.get(priority);
+        if (limits[0] <= 0 && limits[1] <= 0 && limits[2] <= 0) {
+            return 0;
+        }
+
+        String key = KEY_PREFIX + stage.name().toLowerCase() + ":" + priority.name().toLowerCase() + ":" + phoneNumber;
+        long now = System.currentTimeMillis();
+        Long until = cappedUntil.getIfPresent(key);
+        if (until != null && until > now) {
+            capped(priority, stage);
+            return toSeconds(until - now);
+        }
+
+        try {
+            long retryAfterMillis = countAndCheck(key, limits, now);
+            if (retryAfterMillis > 0) {
+                cappedUntil.put(key, now + retryAfterMillis);
+                capped(priority, stage);
+                return toSeconds(retryAfterMillis);
+            }
+            return 0;
+        } catch (DataAccessException e) {
+            log.warn("Frequency cap check failed for {} {} traffic, allowing: {}", priority, stage, e.getMessage());
+            return 0;
+        }
+    }
+
+    private long countAndCheck(String key, long[] limits, long now) {
+        byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+        Window[] windows = Window.values();
+
+        // Per capped window: HINCRBY current, HGET previous, HDEL the bucket before that
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (Window window : windows) {
+                if (limits[window.ordinal()] <= 0) {
+                    continue;
+                }
+                long bucket = now / window.millis;
+                connection.hashCommands().hIncrBy(rawKey, field(window, bucket), 1);
+                connection.hashCommands().hGet(rawKey, field(window, bucket - 1));
+                connection.hashCommands().hDel(rawKey, field(window, bucket - 2));
+            }
+            connection.keyCommands().expire(rawKey, KEY_TTL_SECONDS);
+            return null;
+        });
+
+        long retryAfterMillis = 0;
+        int offset = 0;
+        for (Window window : windows) {
+            long limit = limits[window.ordinal()];
+            if (limit <= 0) {
+                continue;
+            }
+            long current = toLong(results.get(offset));
+            long previous = toLong(results.get(offset + 1));
+            offset += 3;
+
+            long elapsed = now % window.millis;
+            double estimate = current + previous * (1.0 - (double) elapsed / window.millis);
+            if (estimate > limit) {
+                retryAfterMillis = Math.max(retryAfterMillis, window.millis - elapsed);
+            }
+        }
+
+        if (retryAfterMillis > 0) {
+            // Refused messages do not count, so a flood does not extend the cap on its own
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                undo(connection, rawKey, limits, now);
+                return null;
+            });
+        }
+        return retryAfterMillis;
+    }
+
+    private void undo(RedisConnection connection, byte[] rawKey, long[] limits, long now) {
+        for (Window window : Window.values()) {
+            if (limits[window.ordinal()] > 0) {
+                connection.hashCommands().hIncrBy(rawKey, field(window, now / window.millis), -1);
+            }
+        }
+    }
+
+    private byte[] field(Window window, long bucket) {
+        return (window.field + Long.toString(bucket)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void capped(SmsPriority priority, Stage stage) {
+        meterRegistry.counter("sms.frequency_cap.capped",
+                "priority", priority.name(), "stage", stage.name()).increment();
+    }
+
+    private long toLong(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        return value instanceof Number ? ((Number) value).longValue() : Long.parseLong(value.toString());
+    }
+
+    private long toSeconds(long millis) {
+        return Math.max(1, (millis + 999) / 1000);
+    }
+}
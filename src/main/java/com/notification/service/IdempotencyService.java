@@ -0,0 +1,302 @@
+package com.notification.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.notification.dto.NotificationDtos.SmsRequestDto;
+import com.notification.dto.NotificationDtos.SmsResponseDto;
+import com.notification.exception.DuplicateRequestInFlightException;
+import com.notification.exception.IdempotencyKeyReusedException;
+import com.notification.model.SmsRequest.NotificationChannel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Suppresses duplicate sends, either by client supplied Idempotency-Key or by a hash of
+ * (phone number, message or template and params) within a configurable dedupe window.
+ * Both are scoped to the calling client, so clients never see each other's responses.
+ *
+ * Every stored value is prefixed with the hash of the request that claimed the key, so
+ * an Idempotency-Key reused for a different recipient, channel or content is rejected
+ * instead of silently answered with the first request's response. Values written before
+ * the prefix existed carry no hash and are not checked.
+ *
+ * Keys are claimed with SET NX in a single pipelined round trip, so a unique request
+ * costs no more than the write it needs anyway, and recorded with one pipelined round
+ * trip once the send commits. Completed responses are kept in a
+ * size-bounded local cache so repeats hitting the same instance never reach Redis.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+
+    private static final String IDEMPOTENCY_KEY_PREFIX = "sms:idempotency:";
+    private static final String DEDUPE_KEY_PREFIX = "sms:dedupe:";
+    private static final String IN_FLIGHT = "IN_FLIGHT";
+    // Stored values are "<request hash>:<IN_FLIGHT or response JSON>"; the hash is hex SHA-256
+    private static final int HASH_LENGTH = 64;
+    private static final char HASH_SEPARATOR = ':';
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final long keyTtlSeconds;
+    private final long dedupeWindowSeconds;
+    private final long inFlightRetryAfterSeconds;
+    private final Cache<String, CompletedResponse> completedResponses;
+
+    public IdempotencyService(RedisTemplate<String, String> redisTemplate,
+                              ObjectMapper objectMapper,
+                              @Value("${sms.idempotency.key-ttl-seconds}") long keyTtlSeconds,
+                              @Value("${sms.idempotency.dedupe-window-seconds}") long dedupeWindowSeconds,
+                              @Value("${sms.idempotency.local-cache-size}") long localCacheSize,
+                              @Value("${sms.idempotency.in-flight-retry-after-seconds}") long inFlightRetryAfterSeconds) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.keyTtlSeconds = keyTtlSeconds;
+        this.dedupeWindowSeconds = dedupeWindowSeconds;
+        this.inFlightRetryAfterSeconds = inFlightRetryAfterSeconds;
+        this.completedResponses = Caffeine.newBuilder()
+                .maximumSize(localCacheSize)
+                .expireAfter(new Expiry<String, CompletedResponse>() {
+                    @Override
+                    public long expireAfterCreate(String key, CompletedResponse value, long currentTime) {
+                        long ttlSeconds = key.startsWith(DEDUPE_KEY_PREFIX) ? dedupeWindowSeconds : keyTtlSeconds;
+                        return TimeUnit.SECONDS.toNanos(ttlSeconds);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, CompletedResponse value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, CompletedResponse value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Claims the request's idempotency key and dedupe hash. If either is already taken the
+     * returned claim carries the original response instead.
+     *
+     * @param clientId the caller, as resolved by {@link ClientQuotaService#resolveClientId}
+     * @throws DuplicateRequestInFlightException if the original request is still being processed
+     * @throws IdempotencyKeyReusedException if the key was first used for a different request
+     */
+    public Claim claim(String clientId, String idempotencyKey, SmsRequestDto requestDto) {
+        String requestHash = dedupeHash(requestDto);
+        List<String> keys = new ArrayList<>(2);
+        List<Long> ttls = new ArrayList<>(2);
+        if (idempotencyKey != null && !idempotencyKey.trim().isEmpty()) {
+            keys.add(IDEMPOTENCY_KEY_PREFIX + clientId + ":" + idempotencyKey.trim());
+            ttls.add(keyTtlSeconds);
+        }
+        if (dedupeWindowSeconds > 0) {
+            keys.add(DEDUPE_KEY_PREFIX + clientId + ":" + requestHash);
+            ttls.add(dedupeWindowSeconds);
+        }
+        if (keys.isEmpty()) {
+            return new Claim(keys, ttls, requestHash, null);
+        }
+
+        for (String key : keys) {
+            CompletedResponse original = completedResponses.getIfPresent(key);
+            if (original != null) {
+                checkSameRequest(key, original.requestHash, requestHash);
+                log.info("Duplicate SMS request suppressed by local cache for key: {}", key);
+                return new Claim(new ArrayList<>(), ttls, requestHash, original.response);
+            }
+        }
+
+        byte[] inFlight = (requestHash + HASH_SEPARATOR + IN_FLIGHT).getBytes(StandardCharsets.UTF_8);
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (int i = 0; i < keys.size(); i++) {
+                connection.stringCommands().set(keys.get(i).getBytes(StandardCharsets.UTF_8), inFlight,
+                        Expiration.seconds(ttls.get(i)), SetOption.SET_IF_ABSENT);
+            }
+            return null;
+        });
+
+        List<String> claimed = new ArrayList<>(keys.size());
+        String takenKey = null;
+        for (int i = 0; i < keys.size(); i++) {
+            if (Boolean.TRUE.equals(results.get(i))) {
+                claimed.add(keys.get(i));
+            } else if (takenKey == null) {
+                takenKey = keys.get(i);
+            }
+        }
+        if (takenKey == null) {
+            return new Claim(claimed, ttls, requestHash, null);
+        }
+
+        // Duplicate: give back what we claimed and answer with the original response
+        if (!claimed.isEmpty()) {
+            redisTemplate.delete(claimed);
+        }
+        String stored = redisTemplate.opsForValue().get(takenKey);
+        String storedHash = null;
+        if (stored != null && stored.length() > HASH_LENGTH && stored.charAt(HASH_LENGTH) == HASH_SEPARATOR) {
+            storedHash = stored.substring(0, HASH_LENGTH);
+            stored = stored.substring(HASH_LENGTH + 1);
+        }
+        checkSameRequest(takenKey, storedHash, requestHash);
+        if (stored == null || IN_FLIGHT.equals(stored)) {
+            throw new DuplicateRequestInFlightException("Duplicate request is already being processed",
+                    inFlightRetryAfterSeconds);
+        }
+        SmsResponseDto original = readResponse(stored);
+        completedResponses.put(takenKey, new CompletedResponse(storedHash, original));
+        log.info("Duplicate SMS request suppressed for key: {}", takenKey);
+        return new Claim(new ArrayList<>(), ttls, requestHash, original);
+    }
+
+    private void checkSameRequest(String key, String storedHash, String requestHash) {
+        if (storedHash != null && !storedHash.equals(requestHash)) {
+            log.warn("Idempotency key {} reused for a different request", key);
+            throw new IdempotencyKeyReusedException("Idempotency-Key was already used for a different request");
+        }
+    }
+
+    /**
+     * Records the response for the claimed keys once the surrounding transaction commits,
+     * or releases the keys if it rolls back.
+     */
+    public void completeOnCommit(Claim claim, SmsResponseDto response) {
+        if (claim.getClaimedKeys().isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            complete(claim, response);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    complete(claim, response);
+                } else {
+                    release(claim);
+                }
+            }
+        });
+    }
+
+    public void release(Claim claim) {
+        if (!claim.getClaimedKeys().isEmpty()) {
+            redisTemplate.delete(claim.getClaimedKeys());
+        }
+    }
+
+    private void complete(Claim claim, SmsResponseDto response) {
+        try {
+            byte[] value = (claim.requestHash + HASH_SEPARATOR + objectMapper.writeValueAsString(response))
+                    .getBytes(StandardCharsets.UTF_8);
+            List<String> keys = claim.getClaimedKeys();
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (int i = 0; i < keys.size(); i++) {
+                    connection.stringCommands().set(keys.get(i).getBytes(StandardCharsets.UTF_8), value,
+                            Expiration.seconds(claim.ttls.get(i)), SetOption.UPSERT);
+                }
+                return null;
+            });
+            for (String key : keys) {
+                completedResponses.put(key, new CompletedResponse(claim.requestHash, response));
+            }
+        } catch (Exception e) {
+            log.error("Failed to record idempotent response for keys: {}", claim.getClaimedKeys(), e);
+        }
+    }
+
+    private SmsResponseDto readResponse(String stored) {
+        try {
+            return objectMapper.readValue(stored, SmsResponseDto.class);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to read original response", e);
+        }
+    }
+
+    private String dedupeHash(SmsRequestDto requestDto) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(requestDto.getPhoneNumber().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            if (requestDto.getChannel() != null && requestDto.getChannel() != NotificationChannel.SMS) {
+                // Left out for SMS so that hashes from before channels existed still match
+                digest.update(("channel:" + requestDto.getChannel()).getBytes(StandardCharsets.UTF_8));
+            }
+            if (requestDto.getTemplateId() != null) {
+                // Sorted so that param order in the request body doesn't matter
+                Map<String, String> params = requestDto.getTemplateParams() == null
+                        ? new TreeMap<>() : new TreeMap<>(requestDto.getTemplateParams());
+                digest.update(("template:" + requestDto.getTemplateId() + params).getBytes(StandardCharsets.UTF_8));
+            } else {
+                digest.update(requestDto.getMessage().getBytes(StandardCharsets.UTF_8));
+            }
+            byte[] hash = digest.digest();
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static class CompletedResponse {
+        private final String requestHash;
+        private final SmsResponseDto response;
+
+        CompletedResponse(String requestHash, SmsResponseDto response) {
+            this.requestHash = requestHash;
+            this.response = response;
+        }
+    }
+
+    public static class Claim {
+        private final List<String> claimedKeys;
+        private final List<Long> ttls;
+        private final String requestHash;
+        private final SmsResponseDto originalResponse;
+
+        Claim(List<String> claimedKeys, List<Long> ttls, String requestHash, SmsResponseDto originalResponse) {
+            this.claimedKeys = claimedKeys;
+            this.ttls = ttls;
+            this.requestHash = requestHash;
+            this.originalResponse = originalResponse;
+        }
+
+        public List<String> getClaimedKeys() {
+            return claimedKeys;
+        }
+
+        public boolean isDuplicate() {
+            return originalResponse != null;
+        }
+
+        public SmsResponseDto getOriginalResponse() {
+            return originalResponse;
+        }
+    }
+}
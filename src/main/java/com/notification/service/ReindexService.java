@@ -0,0 +1,335 @@
+package com.notification.service;
+
+import com.notification.config.ApplicationConfig;
+import com.notification.dto.NotificationDtos.ReindexRequestDto;
+import com.notification.model.SmsRequest;
+import com.notification.repository.SmsRequestRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rebuilds the SMS index from MySQL.
+ *
+ * The id range is split into fixed-size chunks that a pool of workers reads and bulk
+ * indexes into a fresh index. Each finished chunk is checkpointed in Redis, so a job that
+ * dies with the instance can be resumed without redoing completed chunks. Rows inserted
+ * or updated while the job runs are picked up by catch-up passes over updated_at, and
+ * live status updates are written to both indices until the
+ * {@link ApplicationConfig#SMS_INDEX} alias is switched to the new index.
+ *
+ * A job runs on one instance at a time, guarded by a Redis lock that the running
+ * instance keeps renewing. If the holder dies the lock expires and the job can be resumed
+ * elsewhere.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReindexService {
+
+    private static final String JOB_KEY = "sms:reindex:job";
+    private static final String CHUNKS_KEY_SUFFIX = ":chunks";
+    private static final String LOCK_KEY = "sms:reindex:lock";
+    // Rows are stamped with the writing instance's clock; allow for skew between instances
+    private static final long CATCH_UP_CLOCK_SKEW_SECONDS = 60;
+
+    private static final RedisScript<Long> RENEW_LOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('expire', KEYS[1], ARGV[2]) else return 0 end",
+            Long.class);
+    private static final RedisScript<Long> RELEASE_LOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+    private static final DateTimeFormatter INDEX_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_FAILED = "FAILED";
+
+    private final SmsRequestRepository smsRequestRepository;
+    private final ElasticsearchService elasticsearchService;
+    private final RedisTemplate<String, String> redisTemplate;
+
+    @Value("${elasticsearch.reindex.chunk-size}")
+    private int defaultChunkSize;
+
+    @Value("${elasticsearch.reindex.parallelism}")
+    private int defaultParallelism;
+
+    @Value("${elasticsearch.reindex.max-docs-per-second}")
+    private int defaultMaxDocsPerSecond;
+
+    @Value("${elasticsearch.reindex.lock-ttl-seconds}")
+    private long lockTtlSeconds;
+
+    private final String lockToken = UUID.randomUUID().toString();
+    private final ScheduledExecutorService lockRenewer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "reindex-lock-renewer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService coordinator = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "reindex-coordinator");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Object throttleLock = new Object();
+    private long nextPermitNanos;
+
+    @PreDestroy
+    public void shutdown() {
+        coordinator.shutdownNow();
+        lockRenewer.shutdownNow();
+    }
+
+    /**
+     * Starts a new backfill into a fresh index.
+     */
+    public Map<String, String> startReindex(ReindexRequestDto requestDto) throws IOException {
+        acquireLock();
+        try {
+            Long minId = smsRequestRepository.findMinId();
+            Long maxId = smsRequestRepository.findMaxId();
+            String targetIndex = ApplicationConfig.SMS_INDEX + "_" + LocalDateTime.now().format(INDEX_SUFFIX);
+            elasticsearchService.createIndex(targetIndex, requestDto.getMapping());
+
+            Map<String, String> job = new HashMap<>();
+            job.put("jobId", targetIndex);
+            job.put("targetIndex", targetIndex);
+            job.put("minId", String.valueOf(minId == null ? 0 : minId));
+            job.put("maxId", String.valueOf(maxId == null ? 0 : maxId));
+            job.put("chunkSize", String.valueOf(orDefault(requestDto.getChunkSize(), defaultChunkSize)));
+            job.put("parallelism", String.valueOf(orDefault(requestDto.getParallelism(), defaultParallelism)));
+            job.put("maxDocsPerSecond", String.valueOf(orDefault(requestDto.getMaxDocsPerSecond(), defaultMaxDocsPerSecond)));
+            job.put("indexedDocs", "0");
+            job.put("status", STATUS_RUNNING);
+            job.put("startedAt", LocalDateTime.now().toString());
+
+            redisTemplate.delete(Arrays.asList(JOB_KEY, JOB_KEY + CHUNKS_KEY_SUFFIX));
+            redisTemplate.opsForHash().putAll(JOB_KEY, job);
+            submitJob(job);
+            log.info("Started reindex job {} over ids {}..{}", targetIndex, job.get("minId"), job.get("maxId"));
+            return job;
+        } catch (IOException | RuntimeException e) {
+            releaseLock();
+            throw e;
+        }
+    }
+
+    /**
+     * Resumes the last job from its checkpoints, e.g. after the instance running it died.
+     */
+    public Map<String, String> resumeReindex() {
+        Map<String, String> job = getJob();
+        if (job.isEmpty() || STATUS_COMPLETED.equals(job.get("status"))) {
+            throw new IllegalStateException("No unfinished reindex job to resume");
+        }
+        acquireLock();
+        try {
+            redisTemplate.opsForHash().put(JOB_KEY, "status", STATUS_RUNNING);
+            job.put("status", STATUS_RUNNING);
+            submitJob(job);
+        } catch (RuntimeException e) {
+            releaseLock();
+            throw e;
+        }
+        log.info("Resumed reindex job {}", job.get("jobId"));
+        return job;
+    }
+
+    public Map<String, String> getJob() {
+        HashOperations<String, String, String> hash = redisTemplate.opsForHash();
+        Map<String, String> job = new HashMap<>(hash.entries(JOB_KEY));
+        if (!job.isEmpty()) {
+            Long completedChunks = redisTemplate.opsForSet().size(JOB_KEY + CHUNKS_KEY_SUFFIX);
+            job.put("completedChunks", String.valueOf(completedChunks == null ? 0 : completedChunks));
+        }
+        return job;
+    }
+
+    /**
+     * The index a running job is filling, or null when no job is running. Status updates
+     * are written there as well, so documents the backfill already copied stay current.
+     */
+    public String getActiveTargetIndex() {
+        HashOperations<String, String, String> hash = redisTemplate.opsForHash();
+        List<String> fields = hash.multiGet(JOB_KEY, Arrays.asList("status", "targetIndex"));
+        return STATUS_RUNNING.equals(fields.get(0)) ? fields.get(1) : null;
+    }
+
+    private void acquireLock() {
+        Boolean acquired = redisTemplate.opsForValue().setIfAbsent(LOCK_KEY, lockToken, lockTtlSeconds, TimeUnit.SECONDS);
+        if (!Boolean.TRUE.equals(acquired)) {
+            throw new IllegalStateException("A reindex job is already running");
+        }
+    }
+
+    private boolean renewLock() {
+        Long renewed = redisTemplate.execute(RENEW_LOCK_SCRIPT, Collections.singletonList(LOCK_KEY),
+                lockToken, String.valueOf(lockTtlSeconds));
+        return renewed != null && renewed == 1;
+    }
+
+    private void releaseLock() {
+        try {
+            redisTemplate.execute(RELEASE_LOCK_SCRIPT, Collections.singletonList(LOCK_KEY), lockToken);
+        } catch (RuntimeException e) {
+            log.warn("Could not release the reindex lock, it expires in {}s", lockTtlSeconds, e);
+        }
+    }
+
+    // Keeps the lock alive while the job runs; stops the job if another instance took it over
+    private void submitJob(Map<String, String> job) {
+        Future<?> jobFuture = coordinator.submit(() -> runJob(job));
+        long renewSeconds = Math.max(1, lockTtlSeconds / 3);
+        ScheduledFuture<?>[] renewal = new ScheduledFuture<?>[1];
+        renewal[0] = lockRenewer.scheduleWithFixedDelay(() -> {
+            if (jobFuture.isDone()) {
+                renewal[0].cancel(false);
+            } else if (!renewLock()) {
+                log.error("Lost the reindex lock, stopping job {}", job.get("jobId"));
+                jobFuture.cancel(true);
+                renewal[0].cancel(false);
+            }
+        }, renewSeconds, renewSeconds, TimeUnit.SECONDS);
+    }
+
+    private void runJob(Map<String, String> job) {
+        String targetIndex = job.get("targetIndex");
+        long minId = Long.parseLong(job.get("minId"));
+        long maxId = Long.parseLong(job.get("maxId"));
+        int chunkSize = Integer.parseInt(job.get("chunkSize"));
+        int parallelism = Integer.parseInt(job.get("parallelism"));
+        int maxDocsPerSecond = Integer.parseInt(job.get("maxDocsPerSecond"));
+
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism);
+        try {
+            Set<String> done = redisTemplate.opsForSet().members(JOB_KEY + CHUNKS_KEY_SUFFIX);
+            List<Future<?>> chunks = new ArrayList<>();
+            for (long start = minId; start <= maxId; start += chunkSize) {
+                if (done != null && done.contains(String.valueOf(start))) {
+                    continue;
+                }
+                long chunkStart = start;
+                long chunkEnd = Math.min(start + chunkSize - 1, maxId);
+                chunks.add(workers.submit(() -> {
+                    indexChunk(targetIndex, chunkStart, chunkEnd, maxDocsPerSecond);
+                    redisTemplate.opsForSet().add(JOB_KEY + CHUNKS_KEY_SUFFIX, String.valueOf(chunkStart));
+                    return null;
+                }));
+            }
+            for (Future<?> chunk : chunks) {
+                chunk.get();
+            }
+
+            // Catch up on rows inserted or updated since the job started. Each pass covers
+            // what changed during the previous one; once a pass is short, the dual-written
+            // status updates cover the rest until the alias switch.
+            LocalDateTime since = LocalDateTime.parse(job.get("startedAt")).minusSeconds(CATCH_UP_CLOCK_SKEW_SECONDS);
+            while (true) {
+                LocalDateTime passStart = LocalDateTime.now().minusSeconds(CATCH_UP_CLOCK_SKEW_SECONDS);
+                if (catchUp(targetIndex, since, chunkSize, maxDocsPerSecond) < chunkSize) {
+                    break;
+                }
+                since = passStart;
+            }
+
+            elasticsearchService.switchAlias(ApplicationConfig.SMS_INDEX, targetIndex);
+            redisTemplate.opsForHash().put(JOB_KEY, "status", STATUS_COMPLETED);
+            redisTemplate.opsForHash().put(JOB_KEY, "completedAt", LocalDateTime.now().toString());
+            log.info("Reindex job {} completed", targetIndex);
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            if (!lockToken.equals(redisTemplate.opsForValue().get(LOCK_KEY))) {
+                // Another instance owns the job now; leave its status alone
+                log.warn("Reindex job {} stopped on this instance", targetIndex);
+                return;
+            }
+            log.error("Reindex job {} failed, resume it to continue from its checkpoints", targetIndex, e);
+            redisTemplate.opsForHash().put(JOB_KEY, "status", STATUS_FAILED);
+            redisTemplate.opsForHash().put(JOB_KEY, "error", String.valueOf(e.getMessage()));
+        } finally {
+            workers.shutdownNow();
+            releaseLock();
+        }
+    }
+
+    private long catchUp(String targetIndex, LocalDateTime since, int chunkSize, int maxDocsPerSecond)
+            throws IOException, InterruptedException {
+        long indexed = 0;
+        long afterId = 0;
+        while (true) {
+            List<SmsRequest> rows = smsRequestRepository.findByUpdatedAtGreaterThanEqualAndIdGreaterThanOrderByIdAsc(
+                    since, afterId, PageRequest.of(0, chunkSize));
+            if (rows.isEmpty()) {
+                return indexed;
+            }
+            throttle(rows.size(), maxDocsPerSecond);
+            elasticsearchService.bulkIndex(targetIndex, rows);
+            redisTemplate.opsForHash().increment(JOB_KEY, "indexedDocs", rows.size());
+            indexed += rows.size();
+            afterId = rows.get(rows.size() - 1).getId();
+        }
+    }
+
+    private void indexChunk(String targetIndex, long startId, long endId, int maxDocsPerSecond)
+            throws IOException, InterruptedException {
+        List<SmsRequest> rows = smsRequestRepository.findByIdBetweenOrderByIdAsc(startId, endId);
+        if (rows.isEmpty()) {
+            return;
+        }
+        throttle(rows.size(), maxDocsPerSecond);
+        elasticsearchService.bulkIndex(targetIndex, rows);
+        redisTemplate.opsForHash().increment(JOB_KEY, "indexedDocs", rows.size());
+        log.debug("Reindexed ids {}..{} ({} documents) into {}", startId, endId, rows.size(), targetIndex);
+    }
+
+    /**
+     * Spaces bulk requests out so that all workers together stay under maxDocsPerSecond.
+     */
+    private void throttle(int docs, int maxDocsPerSecond) throws InterruptedException {
+        long waitNanos;
+        synchronized (throttleLock) {
+            long now = System.nanoTime();
+            if (nextPermitNanos < now) {
+                nextPermitNanos = now;
+            }
+            waitNanos = nextPermitNanos - now;
+            nextPermitNanos += TimeUnit.SECONDS.toNanos(docs) / maxDocsPerSecond;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    private int orDefault(Integer value, int defaultValue) {
+        return value != null ? value : defaultValue;
+    }
+}
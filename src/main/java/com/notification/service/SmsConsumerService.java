@@ -1,87 +1,63 @@
 package com.notification.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.notification.config.ApplicationConfig;
-import com.notification.dto.NotificationDtos.SmsApiResponse;
-import com.notification.model.SmsRequest;
-import com.notification.repository.SmsRequestRepository;
+import com.notification.model.SmsRequest.NotificationChannel;
+import com.notification.service.dispatch.DispatchEngine;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Kafka listeners, one set per channel. Each channel consumes its own topics with its own
+ * consumer threads and hands the correlation ids to the {@link DispatchEngine}.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class SmsConsumerService {
 
-    private final SmsRequestRepository smsRequestRepository;
-    private final SmsApiService smsApiService;
-    private final BlacklistService blacklistService;
-    private final ElasticsearchService elasticsearchService;
-    private final ObjectMapper objectMapper;
-
-    @KafkaListener(topics = ApplicationConfig.SMS_SEND_TOPIC, groupId = "${spring.kafka.consumer.group-id}")
-    @Transactional
-    public void processSmsRequest(String correlationId) {
-        log.info("Processing SMS request with correlation ID: {}", correlationId);
-        
-        try {
-            // Get SMS request from database
-            SmsRequest smsRequest = smsRequestRepository.findByCorrelationId(correlationId)
-                    .orElseThrow(() -> new RuntimeException("SMS request not found: " + correlationId));
+    private final DispatchEngine dispatchEngine;
 
-            // Update status to processing
-            smsRequest.setStatus(SmsRequest.SmsStatus.PROCESSING);
-            smsRequestRepository.save(smsRequest);
-
-            // Check if phone number is blacklisted
-            if (blacklistService.isBlacklisted(smsRequest.getPhoneNumber())) {
-                log.warn("Phone number {} is blacklisted, marking as blacklisted", smsRequest.getPhoneNumber());
-                smsRequest.setStatus(SmsRequest.SmsStatus.BLACKLISTED);
-                smsRequest.setFailureCode(ApplicationConfig.PHONE_NUMBER_BLACKLISTED);
-                smsRequest.setFailureComments("Phone number is blacklisted");
-                smsRequestRepository.save(smsRequest);
-                return;
-            }
+    // Listeners are deliberately not transactional: each status transition commits on its
+    // own, so no connection is held across the vendor call and a concurrent writer is
+    // detected by the version check instead of being silently overwritten.
+    @KafkaListener(topics = ApplicationConfig.SMS_SEND_HIGH_PRIORITY_TOPIC, groupId = "${sms.lanes.high.group-id}",
+            concurrency = "${sms.lanes.high.concurrency}")
+    public void processHighPrioritySmsRequest(String correlationId) {
+        dispatchEngine.dispatch(NotificationChannel.SMS, Collections.singletonList(correlationId));
+    }
 
-            // Call third-party(instead of actual API, I'm using a mocked response) SMS API
-            SmsApiResponse apiResponse = smsApiService.sendSms(smsRequest);
-            
-            // Update SMS request with response
-            if (apiResponse.isSuccess()) {
-                smsRequest.setStatus(SmsRequest.SmsStatus.SENT);
-                smsRequest.setMessageId(apiResponse.getMessageId());
-                log.info("SMS sent successfully for correlation ID: {}", correlationId);
-            } else {
-                smsRequest.setStatus(SmsRequest.SmsStatus.FAILED);
-                smsRequest.setFailureCode(apiResponse.getErrorCode());
-                smsRequest.setFailureComments(apiResponse.getErrorMessage());
-                log.error("SMS sending failed for correlation ID: {}, error: {}", correlationId, apiResponse.getErrorMessage());
-            }
+    @KafkaListener(topics = ApplicationConfig.SMS_SEND_TOPIC, groupId = "${sms.lanes.normal.group-id}",
+            concurrency = "${sms.lanes.normal.concurrency}")
+    public void processSmsRequest(String correlationId) {
+        dispatchEngine.dispatch(NotificationChannel.SMS, Collections.singletonList(correlationId));
+    }
 
-            smsRequestRepository.save(smsRequest);
+    @KafkaListener(topics = ApplicationConfig.SMS_SEND_LOW_PRIORITY_TOPIC, groupId = "${sms.lanes.low.group-id}",
+            concurrency = "${sms.lanes.low.concurrency}")
+    public void processLowPrioritySmsRequest(String correlationId) {
+        dispatchEngine.dispatch(NotificationChannel.SMS, Collections.singletonList(correlationId));
+    }
 
-            // Index in Elasticsearch
-            elasticsearchService.indexSmsRequest(smsRequest);
-            log.info("SMS request indexed in Elasticsearch for correlation ID: {}", correlationId);
+    // Email and push are consumed in batches of up to max-poll-records, which the engine
+    // splits into provider batches
+    @KafkaListener(topics = ApplicationConfig.EMAIL_SEND_TOPIC, groupId = "${spring.kafka.consumer.group-id}",
+            concurrency = "${sms.channels.email.consumers}", batch = "true",
+            properties = "max.poll.records:${sms.channels.email.max-poll-records}")
+    public void processEmailRequests(List<String> correlationIds) {
+        log.info("Received {} email requests", correlationIds.size());
+        dispatchEngine.dispatch(NotificationChannel.EMAIL, correlationIds);
+    }
 
-        } catch (Exception e) {
-            log.error("Error processing SMS request with correlation ID: {}", correlationId, e);
-            
-            // Update status to failed
-            try {
-                SmsRequest smsRequest = smsRequestRepository.findByCorrelationId(correlationId).orElse(null);
-                if (smsRequest != null) {
-                    smsRequest.setStatus(SmsRequest.SmsStatus.FAILED);
-                    smsRequest.setFailureCode("PROCESSING_ERROR");
-                    smsRequest.setFailureComments(e.getMessage());
-                    smsRequestRepository.save(smsRequest);
-                }
-            } catch (Exception updateException) {
-                log.error("Error updating SMS request status for correlation ID: {}", correlationId, updateException);
-            }
-        }
+    @KafkaListener(topics = ApplicationConfig.PUSH_SEND_TOPIC, groupId = "${spring.kafka.consumer.group-id}",
+            concurrency = "${sms.channels.push.consumers}", batch = "true",
+            properties = "max.poll.records:${sms.channels.push.max-poll-records}")
+    public void processPushRequests(List<String> correlationIds) {
+        log.info("Received {} push requests", correlationIds.size());
+        dispatchEngine.dispatch(NotificationChannel.PUSH, correlationIds);
     }
-} 
\ No newline at end of file
+}
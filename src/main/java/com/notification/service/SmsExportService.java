@@ -0,0 +1,140 @@
+package com.notification.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.notification.model.SmsRequest;
+import com.notification.repository.SmsRequestRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Streams SMS history straight from a MySQL cursor to the response.
+ *
+ * Rows are loaded read-only and detached as soon as they are written, so neither the
+ * persistence context nor the output buffer grows with the size of the export.
+ *
+ * The cursor keeps a (replica) connection for as long as the client takes to drain the
+ * response, so the transaction is bounded by sms.export.timeout-seconds, the same
+ * deadline that spring.mvc.async.request-timeout gives the streamed response.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SmsExportService {
+
+    private static final String[] COLUMNS = {
+            "id", "requestId", "phoneNumber", "message", "templateId", "templateVersion", "status",
+            "failureCode", "failureComments", "messageId", "priority", "encoding", "segmentCount",
+            "createdAt", "updatedAt"
+    };
+
+    private final SmsRequestRepository smsRequestRepository;
+    private final TemplateService templateService;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    public enum ExportFormat {
+        NDJSON,
+        CSV
+    }
+
+    @Transactional(readOnly = true, timeoutString = "${sms.export.timeout-seconds}")
+    public long export(String phoneNumber, LocalDateTime startTime, LocalDateTime endTime,
+                       ExportFormat format, OutputStream out) throws IOException {
+        log.info("Exporting SMS history for phone number: {} between {} and {} as {}", phoneNumber, startTime, endTime, format);
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        JsonGenerator json = null;
+        if (format == ExportFormat.NDJSON) {
+            json = objectMapper.getFactory().createGenerator(writer);
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        } else {
+            writeCsvRow(writer, COLUMNS);
+        }
+
+        long count = 0;
+        try (Stream<SmsRequest> rows = smsRequestRepository.streamByPhoneNumberAndCreatedAtBetween(phoneNumber, startTime, endTime)) {
+            Iterator<SmsRequest> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                SmsRequest row = iterator.next();
+                if (json != null) {
+                    writeJsonRow(json, row);
+                } else {
+                    writeCsvRow(writer, toColumns(row));
+                }
+                entityManager.detach(row);
+                count++;
+            }
+        }
+
+        if (json != null) {
+            json.flush();
+        }
+        writer.flush();
+        log.info("Exported {} SMS requests for phone number: {}", count, phoneNumber);
+        return count;
+    }
+
+    private String[] toColumns(SmsRequest row) {
+        return new String[]{
+                String.valueOf(row.getId()), row.getCorrelationId(), row.getPhoneNumber(), templateService.renderMessage(row),
+                row.getTemplateId(), toString(row.getTemplateVersion()), toString(row.getStatus()), row.getFailureCode(),
+                row.getFailureComments(), row.getMessageId(), toString(row.getPriority()), toString(row.getEncoding()),
+                toString(row.getSegmentCount()), format(row.getCreatedAt()), format(row.getUpdatedAt())
+        };
+    }
+
+    private void writeJsonRow(JsonGenerator json, SmsRequest row) throws IOException {
+        String[] values = toColumns(row);
+        json.writeStartObject();
+        for (int i = 0; i < COLUMNS.length; i++) {
+            if (values[i] != null) {
+                json.writeStringField(COLUMNS[i], values[i]);
+            }
+        }
+        json.writeEndObject();
+        json.writeRaw('\n');
+    }
+
+    private void writeCsvRow(Writer writer, String[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            String value = values[i];
+            if (value == null) {
+                continue;
+            }
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(value.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(value);
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    private String toString(Object value) {
+        return value == null ? null : value.toString();
+    }
+
+    private String format(LocalDateTime value) {
+        return value == null ? null : value.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+    }
+}
@@ -0,0 +1,243 @@
+package com.notification.service;
+
+import com.notification.config.ApplicationConfig;
+import com.notification.model.SmsRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes SMS status transitions to Elasticsearch as small partial updates.
+ *
+ * Updates are buffered per correlation id and flushed on a short interval, in bulk
+ * requests of at most max-bulk-actions, so several quick transitions of the same request collapse into one write.
+ * Every update carries the row's optimistic lock version; the upsert script ignores
+ * anything older than what is already indexed, so a late or reordered update can never
+ * regress a status.
+ *
+ * While a reindex job is filling a new index, every update is also written there, so the
+ * new index is current when the alias is switched to it.
+ *
+ * The buffer is bounded: while Elasticsearch is down, updates for documents not already
+ * buffered are dropped once it is full, and an update is dropped after a few failed
+ * flushes. Dropped updates are counted; the next transition of the same request or a
+ * reindex brings the document back in line with MySQL.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SmsIndexUpdateService {
+
+    private final ElasticsearchService elasticsearchService;
+    private final ReindexService reindexService;
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${elasticsearch.updates.max-pending}")
+    private int maxPending;
+
+    @Value("${elasticsearch.updates.max-bulk-actions}")
+    private int maxBulkActions;
+
+    @Value("${elasticsearch.updates.max-attempts}")
+    private int maxAttempts;
+
+    private final Map<String, PendingUpdate> pending = new ConcurrentHashMap<>();
+    private final AtomicLong droppedSinceFlush = new AtomicLong();
+    private Counter droppedOverflow;
+    private Counter droppedRetries;
+
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("sms.index.updates.pending", pending, Map::size)
+                .description("Index updates waiting for the next flush")
+                .register(meterRegistry);
+        droppedOverflow = Counter.builder("sms.index.updates.dropped")
+                .description("Index updates given up on")
+                .tag("reason", "overflow")
+                .register(meterRegistry);
+        droppedRetries = Counter.builder("sms.index.updates.dropped")
+                .description("Index updates given up on")
+                .tag("reason", "retries")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queues the full document of a newly accepted request.
+     */
+    public void indexCreated(SmsRequest smsRequest) {
+        Map<String, Object> document = elasticsearchService.toDocument(smsRequest);
+        document.put(ElasticsearchService.VERSION_FIELD, ElasticsearchService.statusVersion(smsRequest));
+        enqueueAfterCommit(smsRequest.getCorrelationId(), document, ElasticsearchService.statusVersion(smsRequest));
+    }
+
+    /**
+     * Queues only the fields a status transition changes.
+     */
+    public void statusChanged(SmsRequest smsRequest) {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("status", smsRequest.getStatus().name());
+        fields.put("failureCode", smsRequest.getFailureCode());
+        fields.put("failureComments", smsRequest.getFailureComments());
+        fields.put("messageId", smsRequest.getMessageId());
+        fields.put("updatedAt", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        fields.put(ElasticsearchService.VERSION_FIELD, ElasticsearchService.statusVersion(smsRequest));
+        enqueueAfterCommit(smsRequest.getCorrelationId(), fields, ElasticsearchService.statusVersion(smsRequest));
+    }
+
+    @Scheduled(fixedDelayString = "${elasticsearch.updates.flush-interval-ms}")
+    public void flush() {
+        long dropped = droppedSinceFlush.getAndSet(0);
+        if (dropped > 0) {
+            log.warn("Dropped {} index updates since the last flush", dropped);
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        // Each update is one action, two while a reindex target is dual-written
+        String reindexTarget = activeReindexTarget();
+        int updatesPerBulk = Math.max(1, reindexTarget != null ? maxBulkActions / 2 : maxBulkActions);
+        List<String> ids = new ArrayList<>(pending.keySet());
+        for (int from = 0; from < ids.size(); from += updatesPerBulk) {
+            flushBatch(ids.subList(from, Math.min(from + updatesPerBulk, ids.size())), reindexTarget);
+        }
+    }
+
+    private void flushBatch(List<String> ids, String reindexTarget) {
+        Map<String, PendingUpdate> batch = new HashMap<>(ids.size());
+        BulkRequest bulkRequest = new BulkRequest();
+        for (String id : ids) {
+            PendingUpdate update = pending.remove(id);
+            if (update == null) {
+                continue;
+            }
+            batch.put(id, update);
+            bulkRequest.add(elasticsearchService.versionedUpsert(ApplicationConfig.SMS_INDEX, id, update.fields));
+            if (reindexTarget != null) {
+                bulkRequest.add(elasticsearchService.versionedUpsert(reindexTarget, id, update.fields));
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            BulkResponse response = elasticsearchService.bulk(bulkRequest);
+            for (BulkItemResponse item : response.getItems()) {
+                if (item.isFailed()) {
+                    log.warn("Partial index update failed for correlation ID: {}: {}", item.getId(), item.getFailureMessage());
+                    retry(item.getId(), batch.remove(item.getId()));
+                }
+            }
+            log.debug("Flushed {} coalesced index updates", ids.size());
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to flush {} index updates, will retry", batch.size(), e);
+            for (Map.Entry<String, PendingUpdate> entry : batch.entrySet()) {
+                retry(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    // An unreachable Redis must not hold up updates to the live index
+    private String activeReindexTarget() {
+        try {
+            return reindexService.getActiveTargetIndex();
+        } catch (RuntimeException e) {
+            log.warn("Could not look up the active reindex job: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void enqueueAfterCommit(String correlationId, Map<String, Object> fields, long version) {
+        PendingUpdate update = new PendingUpdate(fields, version);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            enqueue(correlationId, update);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                enqueue(correlationId, update);
+            }
+        });
+    }
+
+    private void retry(String correlationId, PendingUpdate update) {
+        // Dual-written updates can fail twice in one bulk; the first failure already requeued it
+        if (update == null) {
+            return;
+        }
+        if (update.attempts + 1 >= maxAttempts) {
+            drop(droppedRetries);
+            return;
+        }
+        enqueue(correlationId, update.retried());
+    }
+
+    private void enqueue(String correlationId, PendingUpdate update) {
+        // Updates to a document that is already buffered only coalesce and never grow the buffer
+        if (pending.size() >= maxPending && !pending.containsKey(correlationId)) {
+            drop(droppedOverflow);
+            return;
+        }
+        pending.merge(correlationId, update, PendingUpdate::merge);
+    }
+
+    private void drop(Counter reason) {
+        reason.increment();
+        droppedSinceFlush.incrementAndGet();
+    }
+
+    private static final class PendingUpdate {
+        private final Map<String, Object> fields;
+        private final long version;
+        private final int attempts;
+
+        PendingUpdate(Map<String, Object> fields, long version) {
+            this(fields, version, 0);
+        }
+
+        private PendingUpdate(Map<String, Object> fields, long version, int attempts) {
+            this.fields = fields;
+            this.version = version;
+            this.attempts = attempts;
+        }
+
+        PendingUpdate retried() {
+            return new PendingUpdate(fields, version, attempts + 1);
+        }
+
+        /**
+         * Combines two updates of the same document; fields of the newer version win.
+         */
+        PendingUpdate merge(PendingUpdate other) {
+            PendingUpdate older = other.version >= version ? this : other;
+            PendingUpdate newer = older == this ? other : this;
+            Map<String, Object> merged = new HashMap<>(older.fields);
+            merged.putAll(newer.fields);
+            return new PendingUpdate(merged, newer.version, Math.max(attempts, other.attempts));
+        }
+    }
+}
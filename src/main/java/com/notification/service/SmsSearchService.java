@@ -0,0 +1,109 @@
+package com.notification.service;
+
+import com.notification.model.SmsRequest;
+import com.notification.repository.SmsRequestRepository;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Phone number and time range search. Served by Elasticsearch while it is healthy, and
+ * by a keyset-paginated MySQL query when the ES circuit breaker is open or a search fails.
+ *
+ * A request that carries a keyset cursor is always served by MySQL, even once ES is back:
+ * the cursor only means something in MySQL's ordering, and switching backends mid-way
+ * would skip or repeat rows. A client finishes its pagination on MySQL and starts the
+ * next one on ES.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SmsSearchService {
+
+    public static final String BACKEND_ELASTICSEARCH = "elasticsearch";
+    public static final String BACKEND_MYSQL = "mysql";
+
+    private final ElasticsearchService elasticsearchService;
+    private final SmsRequestRepository smsRequestRepository;
+
+    @Value("${sms.search.fallback.max-depth}")
+    private int maxFallbackDepth;
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class SearchResult {
+        private final Page<SmsRequest> page;
+        private final String backend;
+        // Keyset cursor for the next MySQL page, null when served by ES or on the last page
+        private final String nextCursor;
+    }
+
+    public SearchResult searchByPhoneNumberAndTimeRange(String phoneNumber, LocalDateTime startTime,
+                                                        LocalDateTime endTime, Pageable pageable, String cursor) {
+        boolean paginatingMySql = cursor != null && !cursor.isEmpty();
+        if (!paginatingMySql && elasticsearchService.isSearchAvailable()) {
+            try {
+                Page<SmsRequest> page = elasticsearchService.searchSmsByPhoneNumberAndTimeRange(phoneNumber, startTime, endTime, pageable);
+                return new SearchResult(page, BACKEND_ELASTICSEARCH, null);
+            } catch (RuntimeException e) {
+                log.warn("Elasticsearch search failed for phone number: {}, falling back to MySQL", phoneNumber);
+            }
+        }
+        return searchMySql(phoneNumber, startTime, endTime, pageable, cursor);
+    }
+
+    private SearchResult searchMySql(String phoneNumber, LocalDateTime startTime, LocalDateTime endTime,
+                                     Pageable pageable, String cursor) {
+        int size = pageable.getPageSize();
+        Pageable limit = PageRequest.of(0, size);
+
+        LocalDateTime cursorCreatedAt = null;
+        Long cursorId = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            int separator = cursor.lastIndexOf(',');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            cursorCreatedAt = LocalDateTime.parse(cursor.substring(0, separator));
+            cursorId = Long.parseLong(cursor.substring(separator + 1));
+        } else if (pageable.getPageNumber() > 0) {
+            // No cursor: position one from the covering index instead of using OFFSET
+            long skip = pageable.getOffset();
+            if (skip > maxFallbackDepth) {
+                throw new IllegalArgumentException("Page too deep for MySQL fallback, use the returned cursor instead");
+            }
+            List<Object[]> keys = smsRequestRepository.findKeysetKeys(phoneNumber, startTime, endTime,
+                    PageRequest.of(0, (int) skip));
+            if (keys.size() < skip) {
+                long total = smsRequestRepository.countByPhoneNumberAndCreatedAtBetween(phoneNumber, startTime, endTime);
+                return new SearchResult(new PageImpl<>(Collections.<SmsRequest>emptyList(), pageable, total), BACKEND_MYSQL, null);
+            }
+            Object[] last = keys.get(keys.size() - 1);
+            cursorCreatedAt = (LocalDateTime) last[0];
+            cursorId = (Long) last[1];
+        }
+
+        List<SmsRequest> rows = cursorId == null
+                ? smsRequestRepository.findFirstKeysetPage(phoneNumber, startTime, endTime, limit)
+                : smsRequestRepository.findKeysetPageAfter(phoneNumber, startTime, endTime, cursorCreatedAt, cursorId, limit);
+        long total = smsRequestRepository.countByPhoneNumberAndCreatedAtBetween(phoneNumber, startTime, endTime);
+
+        String nextCursor = null;
+        if (rows.size() == size) {
+            SmsRequest last = rows.get(rows.size() - 1);
+            nextCursor = last.getCreatedAt() + "," + last.getId();
+        }
+        log.info("Served search for phone number: {} from MySQL ({} rows)", phoneNumber, rows.size());
+        return new SearchResult(new PageImpl<>(rows, pageable, total), BACKEND_MYSQL, nextCursor);
+    }
+}
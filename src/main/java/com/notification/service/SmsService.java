@@ -4,13 +4,23 @@ import com.notification.config.ApplicationConfig;
 import com.notification.dto.NotificationDtos.SmsRequestDto;
 import com.notification.dto.NotificationDtos.SmsResponseDto;
 import com.notification.model.SmsRequest;
+import com.notification.model.SmsRequest.NotificationChannel;
+import com.notification.model.SmsRequest.SmsPriority;
 import com.notification.repository.SmsRequestRepository;
+import com.notification.service.dispatch.DispatchEngine;
+import com.notification.util.Bulkhead;
+import com.notification.util.SmsSegmentCalculator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
 
 @Service
@@ -21,49 +31,129 @@ public class SmsService {
     private final SmsRequestRepository smsRequestRepository;
     private final KafkaTemplate<String, String> kafkaTemplate;
     private final BlacklistService blacklistService;
+    private final AdmissionControlService admissionControlService;
+    private final IdempotencyService idempotencyService;
+    private final TemplateService templateService;
+    private final SmsIndexUpdateService smsIndexUpdateService;
+    private final FrequencyCapService frequencyCapService;
+    private final DispatchEngine dispatchEngine;
+
+    @Value("${sms.claims.lease-seconds}")
+    private long claimLeaseSeconds;
+
+    @Value("${sms.claims.sweep-batch-size}")
+    private int claimSweepBatchSize;
 
     @Transactional
-    public SmsResponseDto sendSms(SmsRequestDto requestDto) {
-        log.info("Processing SMS request for phone number: {}", requestDto.getPhoneNumber());
-        
-        // Check if phone number is blacklisted
-        if (blacklistService.isBlacklisted(requestDto.getPhoneNumber())) {
-            log.warn("Phone number {} is blacklisted", requestDto.getPhoneNumber());
-            throw new RuntimeException("Phone number is blacklisted");
+    public SmsResponseDto sendSms(SmsRequestDto requestDto, String idempotencyKey, String clientId) {
+        NotificationChannel channel = NotificationChannel.orDefault(requestDto.getChannel());
+        log.info("Processing {} request for recipient: {}", channel, requestDto.getPhoneNumber());
+        if (!dispatchEngine.isEnabled(channel)) {
+            throw new RuntimeException("Channel " + channel + " is not enabled");
+        }
+
+        // Shed low priority traffic before touching any dependency when overloaded; the
+        // load signals are those of the SMS lanes and vendors, so only SMS is shed
+        SmsPriority priority = SmsPriority.orDefault(requestDto.getPriority());
+        if (channel == NotificationChannel.SMS) {
+            admissionControlService.checkAdmission(priority);
+        }
+
+        // Answer retries and double submits with the original response
+        IdempotencyService.Claim claim = idempotencyService.claim(clientId, idempotencyKey, requestDto);
+        if (claim.isDuplicate()) {
+            log.info("Returning original response {} for duplicate SMS request", claim.getOriginalResponse().getRequestId());
+            return claim.getOriginalResponse();
+        }
+
+        try {
+            // Check if phone number is blacklisted
+            if (blacklistService.isBlacklisted(requestDto.getPhoneNumber())) {
+                log.warn("Phone number {} is blacklisted", requestDto.getPhoneNumber());
+                throw new RuntimeException("Phone number is blacklisted");
+            }
+
+            // Generate correlation ID
+            String correlationId = generateCorrelationId();
+
+            // Template sends are pinned to the current version and stored unexpanded
+            Integer templateVersion = null;
+            String text = requestDto.getMessage();
+            if (requestDto.getTemplateId() != null) {
+                templateVersion = templateService.resolveVersion(requestDto.getTemplateId(), requestDto.getTemplateParams());
+                text = templateService.render(requestDto.getTemplateId(), templateVersion, requestDto.getTemplateParams());
+            }
+
+            // Work out the encoding and how many parts the vendor will bill for
+            boolean sms = channel == NotificationChannel.SMS;
+            long segmentInfo = sms ? SmsSegmentCalculator.analyze(text) : 0;
+
+            // Everything below is kept: stop here if the client was already answered 503,
+            // and from here on the send bulkhead waits for the outcome instead
+            Bulkhead.commit();
+
+            // Per-recipient caps, SMS only; a capped request is recorded but never queued
+            long cappedForSeconds = !sms ? 0 : frequencyCapService.tryAcquire(requestDto.getPhoneNumber(), priority,
+                    FrequencyCapService.Stage.ACCEPT);
+
+            // Create SMS request entity
+            SmsRequest smsRequest = SmsRequest.builder()
+                    .phoneNumber(requestDto.getPhoneNumber())
+                    .channel(channel)
+                    .message(requestDto.getTemplateId() == null ? requestDto.getMessage() : null)
+                    .templateId(requestDto.getTemplateId())
+                    .templateVersion(templateVersion)
+                    .templateParams(requestDto.getTemplateId() == null ? null : requestDto.getTemplateParams())
+                    .status(cappedForSeconds > 0 ? SmsRequest.SmsStatus.FREQUENCY_CAPPED : SmsRequest.SmsStatus.PENDING)
+                    .failureCode(cappedForSeconds > 0 ? ApplicationConfig.FREQUENCY_CAP_EXCEEDED : null)
+                    .failureComments(cappedForSeconds > 0 ? frequencyCapComment(cappedForSeconds) : null)
+                    .correlationId(correlationId)
+                    .priority(priority)
+                    .encoding(sms ? SmsSegmentCalculator.encoding(segmentInfo) : null)
+                    .segmentCount(sms ? SmsSegmentCalculator.segments(segmentInfo) : null)
+                    .build();
+
+            // Save to database
+            SmsRequest savedRequest = smsRequestRepository.save(smsRequest);
+            log.info("SMS request saved with ID: {}", savedRequest.getId());
+            smsIndexUpdateService.indexCreated(savedRequest);
+
+            if (cappedForSeconds > 0) {
+                log.warn("SMS request {} to {} exceeds its frequency cap", correlationId, requestDto.getPhoneNumber());
+            } else {
+                // Publish to the Kafka topic of the request's channel and priority lane
+                String topic = resolveTopic(channel, priority);
+                kafkaTemplate.send(topic, correlationId);
+                log.info("{} request {} published to Kafka topic: {}", channel, correlationId, topic);
+            }
+
+            SmsResponseDto response = SmsResponseDto.builder()
+                    .databaseId(savedRequest.getId())
+                    .requestId(correlationId)
+                    .comments(cappedForSeconds > 0 ? savedRequest.getFailureComments() : ApplicationConfig.SMS_SENT_SUCCESS)
+                    .encoding(savedRequest.getEncoding())
+                    .segmentCount(savedRequest.getSegmentCount())
+                    .build();
+            idempotencyService.completeOnCommit(claim, response);
+            return response;
+        } catch (RuntimeException e) {
+            idempotencyService.release(claim);
+            throw e;
         }
+    }
 
-        // Generate correlation ID
-        String correlationId = generateCorrelationId();
-        
-        // Create SMS request entity
-        SmsRequest smsRequest = SmsRequest.builder()
-                .phoneNumber(requestDto.getPhoneNumber())
-                .message(requestDto.getMessage())
-                .status(SmsRequest.SmsStatus.PENDING)
-                .correlationId(correlationId)
-                .build();
-
-        // Save to database
-        SmsRequest savedRequest = smsRequestRepository.save(smsRequest);
-        log.info("SMS request saved with ID: {}", savedRequest.getId());
-
-        // Publish to Kafka topic
-        kafkaTemplate.send(ApplicationConfig.SMS_SEND_TOPIC, correlationId);
-        log.info("SMS request published to Kafka topic: {}", correlationId);
-
-        return SmsResponseDto.builder()
-                .databaseId(savedRequest.getId())
-                .requestId(correlationId)
-                .comments(ApplicationConfig.SMS_SENT_SUCCESS)
-                .build();
+    public static String frequencyCapComment(long retryAfterSeconds) {
+        return "Frequency cap exceeded for recipient, retry after " + retryAfterSeconds + " seconds";
     }
 
+    @Transactional(readOnly = true)
     public SmsRequest getSmsRequest(String requestId) {
         log.info("Fetching SMS request with correlation ID: {}", requestId);
         return smsRequestRepository.findByCorrelationId(requestId)
                 .orElseThrow(() -> new RuntimeException("SMS request not found"));
     }
 
+    @Transactional(readOnly = true)
     public SmsRequest getSmsRequestById(Long id) {
         log.info("Fetching SMS request with database ID: {}", id);
         return smsRequestRepository.findById(id)
@@ -78,6 +168,52 @@ public class SmsService {
         log.info("Deleted SMS request with ID: {}", id);
     }
 
+    /**
+     * Requeues requests whose consumer claimed them but never settled them, e.g. because it
+     * crashed mid-send. Kafka's redelivery of such a message is skipped as a duplicate, so
+     * without this the request would stay PROCESSING forever. Each expired claim is released
+     * back to PENDING with a conditional update, and only the instance that wins it
+     * republishes the request. A consumer that was merely slow may still send, making this
+     * at-least-once; the lease must therefore comfortably exceed the longest send.
+     */
+    @Scheduled(fixedDelayString = "${sms.claims.sweep-interval-ms}")
+    public void requeueStaleClaims() {
+        LocalDateTime before = LocalDateTime.now().minusSeconds(claimLeaseSeconds);
+        List<Object[]> staleClaims = smsRequestRepository.findStaleClaims(SmsRequest.SmsStatus.PROCESSING, before,
+                PageRequest.of(0, claimSweepBatchSize));
+        for (Object[] staleClaim : staleClaims) {
+            String correlationId = (String) staleClaim[0];
+            int released = smsRequestRepository.releaseStaleClaim(correlationId, SmsRequest.SmsStatus.PROCESSING,
+                    SmsRequest.SmsStatus.PENDING, before, LocalDateTime.now());
+            if (released == 0) {
+                continue;
+            }
+            smsRequestRepository.findByCorrelationId(correlationId).ifPresent(smsIndexUpdateService::statusChanged);
+            String topic = resolveTopic(NotificationChannel.orDefault((NotificationChannel) staleClaim[1]),
+                    SmsPriority.orDefault((SmsPriority) staleClaim[2]));
+            kafkaTemplate.send(topic, correlationId);
+            log.warn("Claim on request {} expired after {}s without a result, requeued to {}",
+                    correlationId, claimLeaseSeconds, topic);
+        }
+    }
+
+    private String resolveTopic(NotificationChannel channel, SmsPriority priority) {
+        if (channel == NotificationChannel.EMAIL) {
+            return ApplicationConfig.EMAIL_SEND_TOPIC;
+        }
+        if (channel == NotificationChannel.PUSH) {
+            return ApplicationConfig.PUSH_SEND_TOPIC;
+        }
+        switch (priority) {
+            case HIGH:
+                return ApplicationConfig.SMS_SEND_HIGH_PRIORITY_TOPIC;
+            case LOW:
+                return ApplicationConfig.SMS_SEND_LOW_PRIORITY_TOPIC;
+            default:
+                return ApplicationConfig.SMS_SEND_TOPIC;
+        }
+    }
+
     private String generateCorrelationId() {
         return UUID.randomUUID().toString();
     }
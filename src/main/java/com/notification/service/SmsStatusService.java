@@ -0,0 +1,88 @@
+package com.notification.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.notification.config.ApplicationConfig;
+import com.notification.repository.SmsRequestRepository;
+import com.notification.repository.SmsStatusView;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Resolves the status of many requests at once.
+ *
+ * IDs are looked up in chunks of {@link ApplicationConfig#STATUS_LOOKUP_CHUNK_SIZE} with
+ * an IN query on the correlation id index, and each chunk is written to the response as
+ * soon as it is read. Every chunk runs in its own short read, so no connection is held
+ * while the client drains the response.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SmsStatusService {
+
+    private final SmsRequestRepository smsRequestRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Writes {"data":[...],"notFound":[...]}; IDs that match no request are listed in notFound.
+     */
+    public void writeStatuses(List<String> requestIds, OutputStream out) throws IOException {
+        Set<String> pending = new LinkedHashSet<>(requestIds);
+        log.info("Looking up status of {} SMS requests", pending.size());
+
+        JsonGenerator json = objectMapper.getFactory().createGenerator(out);
+        json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        json.writeStartObject();
+        json.writeArrayFieldStart("data");
+
+        List<String> ids = new ArrayList<>(pending);
+        for (int start = 0; start < ids.size(); start += ApplicationConfig.STATUS_LOOKUP_CHUNK_SIZE) {
+            List<String> chunk = ids.subList(start, Math.min(start + ApplicationConfig.STATUS_LOOKUP_CHUNK_SIZE, ids.size()));
+            for (SmsStatusView view : smsRequestRepository.findByCorrelationIdIn(chunk)) {
+                if (pending.remove(view.getCorrelationId())) {
+                    writeStatus(json, view);
+                }
+            }
+            json.flush();
+        }
+        json.writeEndArray();
+
+        json.writeArrayFieldStart("notFound");
+        for (String id : pending) {
+            json.writeString(id);
+        }
+        json.writeEndArray();
+        json.writeEndObject();
+        json.flush();
+    }
+
+    private void writeStatus(JsonGenerator json, SmsStatusView view) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("requestId", view.getCorrelationId());
+        json.writeStringField("status", view.getStatus() != null ? view.getStatus().name() : null);
+        if (view.getFailureCode() != null) {
+            json.writeStringField("failureCode", view.getFailureCode());
+        }
+        if (view.getMessageId() != null) {
+            json.writeStringField("messageId", view.getMessageId());
+        }
+        json.writeStringField("createdAt", format(view.getCreatedAt()));
+        json.writeStringField("updatedAt", format(view.getUpdatedAt()));
+        json.writeEndObject();
+    }
+
+    private String format(LocalDateTime value) {
+        return value == null ? null : value.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+    }
+}
@@ -0,0 +1,172 @@
+package com.notification.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.notification.model.SmsRequest;
+import com.notification.model.SmsTemplate;
+import com.notification.repository.SmsTemplateRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registers message templates and renders them at dispatch time.
+ *
+ * Each (template id, version) is parsed once into a {@link CompiledTemplate} and cached
+ * for the life of the process; versions never change once stored, so the cache needs no
+ * invalidation. Only the pointer to a template's latest version expires, so that new
+ * versions registered on another instance are picked up.
+ */
+@Service
+@Slf4j
+public class TemplateService {
+
+    private final SmsTemplateRepository smsTemplateRepository;
+    private final Map<String, CompiledTemplate> compiledTemplates = new ConcurrentHashMap<>();
+    private final Cache<String, Integer> latestVersions;
+
+    public TemplateService(SmsTemplateRepository smsTemplateRepository,
+                           @Value("${sms.templates.latest-version-ttl-seconds}") long latestVersionTtlSeconds) {
+        this.smsTemplateRepository = smsTemplateRepository;
+        this.latestVersions = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(latestVersionTtlSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
+    @Transactional
+    public SmsTemplate registerTemplate(String templateId, String body) {
+        // Fail fast on malformed placeholders before storing anything
+        CompiledTemplate compiled = CompiledTemplate.compile(body);
+
+        SmsTemplate latest = smsTemplateRepository.findTopByTemplateIdOrderByVersionDesc(templateId).orElse(null);
+        if (latest != null && latest.getBody().equals(body)) {
+            log.info("Template {} is unchanged, keeping version {}", templateId, latest.getVersion());
+            return latest;
+        }
+
+        SmsTemplate template = smsTemplateRepository.save(SmsTemplate.builder()
+                .templateId(templateId)
+                .version(latest == null ? 1 : latest.getVersion() + 1)
+                .body(body)
+                .build());
+        compiledTemplates.put(cacheKey(templateId, template.getVersion()), compiled);
+        latestVersions.put(templateId, template.getVersion());
+        log.info("Registered template {} version {}", templateId, template.getVersion());
+        return template;
+    }
+
+    public SmsTemplate getLatestTemplate(String templateId) {
+        return smsTemplateRepository.findTopByTemplateIdOrderByVersionDesc(templateId)
+                .orElseThrow(() -> new RuntimeException("Template not found: " + templateId));
+    }
+
+    /**
+     * Resolves the version a new send should be pinned to, and checks that all of its
+     * placeholders are supplied.
+     */
+    public int resolveVersion(String templateId, Map<String, String> params) {
+        Integer version = latestVersions.get(templateId, id -> getLatestTemplate(id).getVersion());
+        getCompiled(templateId, version).checkParams(params);
+        return version;
+    }
+
+    public String render(String templateId, int version, Map<String, String> params) {
+        return getCompiled(templateId, version).render(params);
+    }
+
+    /**
+     * Returns the text to deliver for a request: its template expanded with the stored
+     * params, or the literal message for non-template sends.
+     */
+    public String renderMessage(SmsRequest smsRequest) {
+        if (smsRequest.getTemplateId() == null) {
+            return smsRequest.getMessage();
+        }
+        return render(smsRequest.getTemplateId(), smsRequest.getTemplateVersion(), smsRequest.getTemplateParams());
+    }
+
+    private CompiledTemplate getCompiled(String templateId, int version) {
+        return compiledTemplates.computeIfAbsent(cacheKey(templateId, version), key ->
+                CompiledTemplate.compile(smsTemplateRepository.findByTemplateIdAndVersion(templateId, version)
+                        .orElseThrow(() -> new RuntimeException("Template not found: " + templateId + " version " + version))
+                        .getBody()));
+    }
+
+    private String cacheKey(String templateId, int version) {
+        return templateId + ":" + version;
+    }
+
+    /**
+     * A template body split into literal segments and {{placeholder}} names, so rendering
+     * is a single pass of appends into a pre-sized buffer.
+     */
+    static final class CompiledTemplate {
+
+        private static final String OPEN = "{{";
+        private static final String CLOSE = "}}";
+
+        private final String[] literals;
+        private final String[] paramNames;
+        private final int literalLength;
+
+        private CompiledTemplate(String[] literals, String[] paramNames) {
+            this.literals = literals;
+            this.paramNames = paramNames;
+            int length = 0;
+            for (String literal : literals) {
+                length += literal.length();
+            }
+            this.literalLength = length;
+        }
+
+        static CompiledTemplate compile(String body) {
+            List<String> literals = new ArrayList<>();
+            List<String> paramNames = new ArrayList<>();
+            int position = 0;
+            while (true) {
+                int open = body.indexOf(OPEN, position);
+                if (open < 0) {
+                    break;
+                }
+                int close = body.indexOf(CLOSE, open + OPEN.length());
+                if (close < 0) {
+                    throw new IllegalArgumentException("Unclosed placeholder at position " + open);
+                }
+                String name = body.substring(open + OPEN.length(), close).trim();
+                if (name.isEmpty()) {
+                    throw new IllegalArgumentException("Empty placeholder at position " + open);
+                }
+                literals.add(body.substring(position, open));
+                paramNames.add(name);
+                position = close + CLOSE.length();
+            }
+            literals.add(body.substring(position));
+            return new CompiledTemplate(literals.toArray(new String[0]), paramNames.toArray(new String[0]));
+        }
+
+        void checkParams(Map<String, String> params) {
+            for (String name : paramNames) {
+                if (params == null || params.get(name) == null) {
+                    throw new IllegalArgumentException("Missing template param: " + name);
+                }
+            }
+        }
+
+        String render(Map<String, String> params) {
+            checkParams(params);
+            StringBuilder text = new StringBuilder(literalLength + paramNames.length * 16);
+            for (int i = 0; i < paramNames.length; i++) {
+                text.append(literals[i]).append(params.get(paramNames[i]));
+            }
+            return text.append(literals[paramNames.length]).toString();
+        }
+    }
+}
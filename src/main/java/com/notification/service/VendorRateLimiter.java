@@ -0,0 +1,94 @@
+package com.notification.service;
+
+import com.notification.model.SmsRequest.SmsPriority;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Splits the vendor's per-second send budget between priority lanes.
+ *
+ * Each lane gets a weighted share of the budget every second. HIGH is always given at
+ * least its configured minimum, and may borrow unused permits from NORMAL and LOW so
+ * that OTPs are never throttled while a bulk lane still has headroom. NORMAL may borrow
+ * from LOW; LOW only ever gets its own share.
+ */
+@Component
+@Slf4j
+public class VendorRateLimiter {
+
+    private static final long WINDOW_MILLIS = 1000;
+
+    private final Map<SmsPriority, Long> shares = new EnumMap<>(SmsPriority.class);
+    private final Map<SmsPriority, Long> available = new EnumMap<>(SmsPriority.class);
+    private long windowStart;
+
+    public VendorRateLimiter(@Value("${sms.lanes.vendor-rate-per-second}") long ratePerSecond,
+                             @Value("${sms.lanes.high.weight}") long highWeight,
+                             @Value("${sms.lanes.normal.weight}") long normalWeight,
+                             @Value("${sms.lanes.low.weight}") long lowWeight,
+                             @Value("${sms.lanes.high.min-rate-per-second}") long highMinRate) {
+        long totalWeight = highWeight + normalWeight + lowWeight;
+        long highShare = Math.min(ratePerSecond, Math.max(highMinRate, ratePerSecond * highWeight / totalWeight));
+        long remaining = ratePerSecond - highShare;
+        long normalShare = normalWeight + lowWeight == 0 ? 0 : remaining * normalWeight / (normalWeight + lowWeight);
+
+        shares.put(SmsPriority.HIGH, highShare);
+        shares.put(SmsPriority.NORMAL, normalShare);
+        shares.put(SmsPriority.LOW, remaining - normalShare);
+        log.info("Vendor rate budget of {}/s split across lanes: {}", ratePerSecond, shares);
+    }
+
+    /**
+     * Blocks until the lane has {@code permits} available in the current window.
+     */
+    public void acquire(SmsPriority priority, int permits) throws InterruptedException {
+        while (true) {
+            long waitMillis;
+            synchronized (this) {
+                refill();
+                if (take(priority, permits)) {
+                    return;
+                }
+                waitMillis = windowStart + WINDOW_MILLIS - System.currentTimeMillis();
+            }
+            Thread.sleep(Math.max(1, waitMillis));
+        }
+    }
+
+    private boolean take(SmsPriority priority, int permits) {
+        if (takeFrom(priority, permits)) {
+            return true;
+        }
+        switch (priority) {
+            case HIGH:
+                return takeFrom(SmsPriority.NORMAL, permits) || takeFrom(SmsPriority.LOW, permits);
+            case NORMAL:
+                return takeFrom(SmsPriority.LOW, permits);
+            default:
+                return false;
+        }
+    }
+
+    private boolean takeFrom(SmsPriority lane, int permits) {
+        long left = available.get(lane);
+        // A request larger than the lane's whole share may still go out once per window
+        boolean oversized = permits > shares.get(lane) && left > 0 && left == shares.get(lane);
+        if (left < permits && !oversized) {
+            return false;
+        }
+        available.put(lane, Math.max(0, left - permits));
+        return true;
+    }
+
+    private void refill() {
+        long now = System.currentTimeMillis();
+        if (now - windowStart >= WINDOW_MILLIS) {
+            windowStart = now;
+            available.putAll(shares);
+        }
+    }
+}
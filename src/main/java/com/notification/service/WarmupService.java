@@ -0,0 +1,212 @@
+package com.notification.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.notification.config.ApplicationConfig;
+import com.notification.dto.NotificationDtos.ApiResponse;
+import com.notification.dto.NotificationDtos.SmsRequestDto;
+import com.notification.dto.NotificationDtos.SmsResponseDto;
+import com.notification.model.SmsRequest;
+import com.notification.model.SmsRequest.SmsPriority;
+import com.notification.service.provider.SmsProviderRouter;
+import com.notification.util.SmsSegmentCalculator;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import javax.validation.Validator;
+import java.io.IOException;
+import java.sql.Connection;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Warms the service up before it reports ready.
+ *
+ * Spring Boot only moves readiness to ACCEPTING_TRAFFIC after all application runners
+ * have returned, so running here keeps the instance out of rotation until the connection
+ * pools are open and the hot send and dispatch paths have been run enough times for the
+ * JIT to compile them. All synthetic data stays in process; nothing is persisted, queued
+ * or sent to a vendor. Kafka listeners are started only once warm-up is done.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class WarmupService implements ApplicationRunner {
+
+    private static final String[] SAMPLE_MESSAGES = {
+            "Your OTP is 482913. It is valid for 10 minutes. Do not share it with anyone.",
+            "Your order #A1234 has shipped and will arrive by Friday [track: example.com/t/A1234]",
+            "आपका ओटीपी 482913 है। इसे किसी के साथ साझा न करें।"
+    };
+
+    private final List<HikariDataSource> dataSources;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final ElasticsearchService elasticsearchService;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry;
+    private final SmsProviderRouter smsProviderRouter;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${sms.warmup.enabled}")
+    private boolean enabled;
+
+    @Value("${sms.warmup.iterations}")
+    private int iterations;
+
+    private volatile boolean complete;
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.nanoTime();
+        try {
+            if (enabled) {
+                log.info("Warming up: opening connection pools and running {} synthetic iterations", iterations);
+                step("database pools", this::warmDataSources);
+                step("redis", this::warmRedis);
+                step("elasticsearch", elasticsearchService::probeHealth);
+                step("kafka producer", this::warmKafkaProducer);
+                step("sms providers", smsProviderRouter::openConnections);
+                step("hot paths", this::warmHotPaths);
+            }
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            Timer.builder("app.warmup.duration")
+                    .description("Time spent warming up before accepting traffic")
+                    .register(meterRegistry)
+                    .record(elapsed, TimeUnit.NANOSECONDS);
+            complete = true;
+            startListeners();
+            log.info("Warm-up finished in {} ms", TimeUnit.NANOSECONDS.toMillis(elapsed));
+        }
+    }
+
+    private void step(String name, Runnable warmup) {
+        long start = System.nanoTime();
+        try {
+            warmup.run();
+            log.info("Warmed up {} in {} ms", name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (RuntimeException e) {
+            // A dependency that is down must not keep the instance from starting
+            log.warn("Warm-up of {} failed, continuing: {}", name, e.getMessage());
+        }
+    }
+
+    private void warmDataSources() {
+        for (HikariDataSource dataSource : dataSources) {
+            int connections = Math.max(1, dataSource.getMinimumIdle());
+            List<Connection> opened = new ArrayList<>(connections);
+            try {
+                for (int i = 0; i < connections; i++) {
+                    Connection connection = dataSource.getConnection();
+                    opened.add(connection);
+                    connection.isValid(1);
+                }
+            } catch (Exception e) {
+                throw new IllegalStateException("Pool " + dataSource.getPoolName() + ": " + e.getMessage(), e);
+            } finally {
+                for (Connection connection : opened) {
+                    try {
+                        connection.close();
+                    } catch (Exception e) {
+                        log.debug("Error returning warm-up connection", e);
+                    }
+                }
+            }
+        }
+    }
+
+    private void warmRedis() {
+        for (int i = 0; i < 10; i++) {
+            redisTemplate.execute((RedisCallback<String>) connection -> connection.ping());
+        }
+    }
+
+    private void warmKafkaProducer() {
+        // Fetching metadata connects to the partition leaders without producing anything
+        kafkaTemplate.partitionsFor(ApplicationConfig.SMS_SEND_HIGH_PRIORITY_TOPIC);
+        kafkaTemplate.partitionsFor(ApplicationConfig.SMS_SEND_TOPIC);
+        kafkaTemplate.partitionsFor(ApplicationConfig.SMS_SEND_LOW_PRIORITY_TOPIC);
+        kafkaTemplate.partitionsFor(ApplicationConfig.EMAIL_SEND_TOPIC);
+        kafkaTemplate.partitionsFor(ApplicationConfig.PUSH_SEND_TOPIC);
+    }
+
+    private void warmHotPaths() {
+        TemplateService.CompiledTemplate template = TemplateService.CompiledTemplate.compile(
+                "Your OTP is {{otp}}. It is valid for {{minutes}} minutes.");
+        Map<String, String> templateParams = new HashMap<>();
+        templateParams.put("otp", "482913");
+        templateParams.put("minutes", "10");
+
+        try {
+            for (int i = 0; i < iterations; i++) {
+                String text = SAMPLE_MESSAGES[i % SAMPLE_MESSAGES.length];
+
+                SmsRequestDto requestDto = new SmsRequestDto();
+                requestDto.setPhoneNumber("+919999999999");
+                requestDto.setMessage(text);
+                requestDto.setPriority(SmsPriority.values()[i % SmsPriority.values().length]);
+                validator.validate(requestDto);
+                objectMapper.readValue(objectMapper.writeValueAsString(requestDto), SmsRequestDto.class);
+
+                long analysis = SmsSegmentCalculator.analyze(text);
+                String rendered = template.render(templateParams);
+
+                SmsRequest smsRequest = SmsRequest.builder()
+                        .id((long) i)
+                        .phoneNumber(requestDto.getPhoneNumber())
+                        .message(rendered)
+                        .status(SmsRequest.SmsStatus.PENDING)
+                        .correlationId("warmup-" + i)
+                        .priority(requestDto.getPriority())
+                        .encoding(SmsSegmentCalculator.encoding(analysis))
+                        .segmentCount(SmsSegmentCalculator.segments(analysis))
+                        .version(0L)
+                        .createdAt(LocalDateTime.now())
+                        .updatedAt(LocalDateTime.now())
+                        .build();
+                elasticsearchService.toDocument(smsRequest);
+                smsProviderRouter.warmUp(smsRequest, rendered);
+
+                objectMapper.writeValueAsString(ApiResponse.success(SmsResponseDto.builder()
+                        .requestId(smsRequest.getCorrelationId())
+                        .databaseId(smsRequest.getId())
+                        .comments(ApplicationConfig.SMS_SENT_SUCCESS)
+                        .encoding(smsRequest.getEncoding())
+                        .segmentCount(smsRequest.getSegmentCount())
+                        .build()));
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    private void startListeners() {
+        for (MessageListenerContainer container : kafkaListenerEndpointRegistry.getListenerContainers()) {
+            if (!container.isRunning()) {
+                container.start();
+            }
+        }
+        log.info("Started {} Kafka listener containers", kafkaListenerEndpointRegistry.getListenerContainers().size());
+    }
+}
@@ -0,0 +1,27 @@
+package com.notification.service.dispatch;
+
+import com.notification.dto.NotificationDtos.SmsApiResponse;
+import com.notification.model.SmsRequest;
+import com.notification.model.SmsRequest.NotificationChannel;
+
+import java.util.List;
+
+/**
+ * Delivers requests of one channel to its provider.
+ *
+ * The {@link DispatchEngine} does everything that is common to all channels (claiming,
+ * blacklist checks, status transitions, indexing and stats, plus frequency caps for SMS)
+ * and calls the dispatcher only with requests that should go out, on the channel's own
+ * thread pool (or the consumer thread) and within its rate budget, in batches of at most
+ * the channel's batch size.
+ */
+public interface ChannelDispatcher {
+
+    NotificationChannel getChannel();
+
+    /**
+     * Sends a batch and returns one response per request, in the same order. A rejection
+     * of a single request is an unsuccessful response; an exception fails the whole batch.
+     */
+    List<SmsApiResponse> send(List<SmsRequest> batch) throws Exception;
+}
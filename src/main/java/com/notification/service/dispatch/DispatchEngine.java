@@ -0,0 +1,344 @@
+package com.notification.service.dispatch;
+
+import com.notification.config.ApplicationConfig;
+import com.notification.config.ChannelProperties;
+import com.notification.dto.NotificationDtos.SmsApiResponse;
+import com.notification.model.SmsRequest;
+import com.notification.model.SmsRequest.NotificationChannel;
+import com.notification.model.SmsRequest.SmsPriority;
+import com.notification.repository.SmsRequestRepository;
+import com.notification.service.BlacklistService;
+import com.notification.service.DeliveryStatsService;
+import com.notification.service.FrequencyCapService;
+import com.notification.service.SmsIndexUpdateService;
+import com.notification.service.SmsService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Channel-agnostic delivery core, shared by SMS, email and push.
+ *
+ * Claiming, blacklist checks, status transitions, indexing and stats are the same for
+ * every channel and run on the consumer thread; frequency caps only apply to SMS. Requests
+ * that should go out are split into batches of the channel's batch size and sent by the
+ * channel's {@link ChannelDispatcher} on the channel's own thread pool, within its own
+ * rate budget. A slow or failing provider therefore only backs up its own channel's pool
+ * and topic. A channel configured without threads (SMS) sends on the consumer thread
+ * itself, so its lanes stay as isolated as their consumers.
+ *
+ * Each dispatch blocks until every request has settled, so consumer offsets are only
+ * committed for requests that were actually handled.
+ */
+@Service
+@Slf4j
+public class DispatchEngine {
+
+    private final SmsRequestRepository smsRequestRepository;
+    private final BlacklistService blacklistService;
+    private final FrequencyCapService frequencyCapService;
+    private final SmsIndexUpdateService smsIndexUpdateService;
+    private final DeliveryStatsService deliveryStatsService;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<NotificationChannel, ChannelLane> lanes = new EnumMap<>(NotificationChannel.class);
+
+    public DispatchEngine(SmsRequestRepository smsRequestRepository,
+                          BlacklistService blacklistService,
+                          FrequencyCapService frequencyCapService,
+                          SmsIndexUpdateService smsIndexUpdateService,
+                          DeliveryStatsService deliveryStatsService,
+                          MeterRegistry meterRegistry,
+                          List<ChannelDispatcher> dispatchers,
+                          ChannelProperties channelProperties) {
+        this.smsRequestRepository = smsRequestRepository;
+        this.blacklistService = blacklistService;
+        this.frequencyCapService = frequencyCapService;
+        this.smsIndexUpdateService = smsIndexUpdateService;
+        this.deliveryStatsService = deliveryStatsService;
+        this.meterRegistry = meterRegistry;
+        for (ChannelDispatcher dispatcher : dispatchers) {
+            ChannelProperties.Channel config = channelProperties.get(dispatcher.getChannel());
+            if (config.isEnabled()) {
+                lanes.put(dispatcher.getChannel(), new ChannelLane(dispatcher, config));
+            }
+        }
+        log.info("Dispatching on channels: {}", lanes.keySet());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ChannelLane lane : lanes.values()) {
+            if (lane.executor != null) {
+                lane.executor.shutdown();
+            }
+        }
+    }
+
+    public boolean isEnabled(NotificationChannel channel) {
+        return lanes.containsKey(channel);
+    }
+
+    /**
+     * Delivers the given requests of one channel, blocking until each has settled.
+     */
+    public void dispatch(NotificationChannel channel, List<String> correlationIds) {
+        ChannelLane lane = lanes.get(channel);
+        if (lane == null) {
+            log.error("Channel {} is not enabled, failing {} requests", channel, correlationIds.size());
+            for (String correlationId : correlationIds) {
+                markFailed(correlationId, new IllegalStateException("Channel " + channel + " is not enabled"));
+            }
+            return;
+        }
+
+        List<SmsRequest> ready = new ArrayList<>(correlationIds.size());
+        for (String correlationId : correlationIds) {
+            SmsRequest smsRequest = claim(correlationId, channel);
+            if (smsRequest != null) {
+                ready.add(smsRequest);
+            }
+        }
+
+        List<Future<?>> sends = new ArrayList<>();
+        for (int from = 0; from < ready.size(); from += lane.batchSize) {
+            List<SmsRequest> batch = ready.subList(from, Math.min(ready.size(), from + lane.batchSize));
+            if (lane.executor == null) {
+                sendBatch(lane, batch);
+            } else {
+                sends.add(lane.executor.submit(() -> sendBatch(lane, batch)));
+            }
+        }
+        for (Future<?> send : sends) {
+            try {
+                send.get();
+            } catch (InterruptedException e) {
+                // Batches already submitted still settle on the channel's pool
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                log.error("Unexpected error in {} dispatch", channel, e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Claims a request and runs the checks common to all channels.
+     *
+     * @return the request if it should be sent, or null if it was skipped or settled here
+     */
+    private SmsRequest claim(String correlationId, NotificationChannel channel) {
+        log.info("Processing {} request with correlation ID: {}", channel, correlationId);
+
+        // Claim the request; only one delivery of a message can win this update
+        int claimed = smsRequestRepository.claimForProcessing(correlationId,
+                SmsRequest.SmsStatus.PENDING, SmsRequest.SmsStatus.PROCESSING, LocalDateTime.now());
+        if (claimed == 0) {
+            skipUnclaimed(correlationId);
+            return null;
+        }
+
+        try {
+            SmsRequest smsRequest = smsRequestRepository.findByCorrelationId(correlationId)
+                    .orElseThrow(() -> new RuntimeException("SMS request not found: " + correlationId));
+            smsIndexUpdateService.statusChanged(smsRequest);
+
+            // Check if the recipient is blacklisted
+            if (blacklistService.isBlacklisted(smsRequest.getPhoneNumber())) {
+                log.warn("Recipient {} is blacklisted, marking as blacklisted", smsRequest.getPhoneNumber());
+                smsRequest.transitionTo(SmsRequest.SmsStatus.BLACKLISTED);
+                smsRequest.setFailureCode(ApplicationConfig.PHONE_NUMBER_BLACKLISTED);
+                smsRequest.setFailureComments("Phone number is blacklisted");
+                save(smsRequest);
+                return null;
+            }
+
+            // Recheck caps on what actually goes out, in case a backlog drains in a burst
+            long cappedForSeconds = channel != NotificationChannel.SMS ? 0
+                    : frequencyCapService.tryAcquire(smsRequest.getPhoneNumber(),
+                            SmsPriority.orDefault(smsRequest.getPriority()), FrequencyCapService.Stage.DISPATCH);
+            if (cappedForSeconds > 0) {
+                log.warn("Frequency cap reached for {} at dispatch, capping correlation ID: {}", smsRequest.getPhoneNumber(), correlationId);
+                smsRequest.transitionTo(SmsRequest.SmsStatus.FREQUENCY_CAPPED);
+                smsRequest.setFailureCode(ApplicationConfig.FREQUENCY_CAP_EXCEEDED);
+                smsRequest.setFailureComments(SmsService.frequencyCapComment(cappedForSeconds));
+                save(smsRequest);
+                return null;
+            }
+            return smsRequest;
+
+        } catch (OptimisticLockingFailureException e) {
+            // Another writer moved the request on since we claimed it; its status stands
+            log.warn("Request with correlation ID: {} was modified concurrently, keeping the stored status", correlationId);
+        } catch (Exception e) {
+            log.error("Error processing request with correlation ID: {}", correlationId, e);
+            markFailed(correlationId, e);
+        }
+        return null;
+    }
+
+    private void sendBatch(ChannelLane lane, List<SmsRequest> batch) {
+        NotificationChannel channel = lane.dispatcher.getChannel();
+        long start = System.nanoTime();
+        List<SmsApiResponse> responses;
+        try {
+            lane.acquire(batch.size());
+            responses = lane.dispatcher.send(batch);
+            if (responses.size() != batch.size()) {
+                throw new IllegalStateException("Dispatcher returned " + responses.size()
+                        + " responses for a batch of " + batch.size());
+            }
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            recordBatch(channel, "error", start);
+            log.error("{} batch of {} failed", channel, batch.size(), e);
+            for (SmsRequest smsRequest : batch) {
+                markFailed(smsRequest.getCorrelationId(), e);
+            }
+            return;
+        }
+        recordBatch(channel, "sent", start);
+
+        for (int i = 0; i < batch.size(); i++) {
+            settle(channel, batch.get(i), responses.get(i));
+        }
+    }
+
+    private void settle(NotificationChannel channel, SmsRequest smsRequest, SmsApiResponse response) {
+        String correlationId = smsRequest.getCorrelationId();
+        try {
+            if (response.isSuccess()) {
+                smsRequest.transitionTo(SmsRequest.SmsStatus.SENT);
+                smsRequest.setMessageId(response.getMessageId());
+                log.info("{} sent successfully for correlation ID: {}", channel, correlationId);
+            } else {
+                smsRequest.transitionTo(SmsRequest.SmsStatus.FAILED);
+                smsRequest.setFailureCode(response.getErrorCode());
+                smsRequest.setFailureComments(response.getErrorMessage());
+                log.error("{} sending failed for correlation ID: {}, error: {}", channel, correlationId, response.getErrorMessage());
+            }
+            save(smsRequest);
+        } catch (OptimisticLockingFailureException e) {
+            log.warn("Request with correlation ID: {} was modified concurrently, keeping the stored status", correlationId);
+        } catch (Exception e) {
+            log.error("Error settling request with correlation ID: {}", correlationId, e);
+            markFailed(correlationId, e);
+        }
+    }
+
+    // Persists a terminal transition and pushes it to Elasticsearch and the delivery stats
+    private void save(SmsRequest smsRequest) {
+        SmsRequest saved = smsRequestRepository.save(smsRequest);
+        smsIndexUpdateService.statusChanged(saved);
+        deliveryStatsService.record(saved.getStatus(), saved.getFailureCode());
+    }
+
+    private void skipUnclaimed(String correlationId) {
+        SmsRequest smsRequest = smsRequestRepository.findByCorrelationId(correlationId).orElse(null);
+        if (smsRequest == null) {
+            log.warn("SMS request not found for correlation ID: {}, skipping", correlationId);
+        } else if (smsRequest.getStatus().isTerminal()) {
+            log.info("Late delivery for correlation ID: {} already in {}, skipping", correlationId, smsRequest.getStatus());
+        } else {
+            log.info("Duplicate delivery for correlation ID: {} already in {}, skipping", correlationId, smsRequest.getStatus());
+        }
+        meterRegistry.counter("sms.delivery.skipped",
+                "reason", smsRequest == null ? "NOT_FOUND" : smsRequest.getStatus().name()).increment();
+    }
+
+    private void markFailed(String correlationId, Exception cause) {
+        try {
+            SmsRequest smsRequest = smsRequestRepository.findByCorrelationId(correlationId).orElse(null);
+            if (smsRequest != null && smsRequest.getStatus().canTransitionTo(SmsRequest.SmsStatus.FAILED)) {
+                smsRequest.transitionTo(SmsRequest.SmsStatus.FAILED);
+                smsRequest.setFailureCode("PROCESSING_ERROR");
+                smsRequest.setFailureComments(cause.getMessage());
+                save(smsRequest);
+            }
+        } catch (Exception updateException) {
+            log.error("Error updating request status for correlation ID: {}", correlationId, updateException);
+        }
+    }
+
+    private void recordBatch(NotificationChannel channel, String outcome, long startNanos) {
+        meterRegistry.timer("notification.dispatch.batch", "channel", channel.name(), "outcome", outcome)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private final class ChannelLane {
+        private final ChannelDispatcher dispatcher;
+        private final ThreadPoolTaskExecutor executor;
+        private final int batchSize;
+        private final long ratePerSecond;
+
+        private long windowStart;
+        private long available;
+
+        ChannelLane(ChannelDispatcher dispatcher, ChannelProperties.Channel config) {
+            String name = dispatcher.getChannel().name().toLowerCase();
+            this.dispatcher = dispatcher;
+            this.batchSize = Math.max(1, config.getBatchSize());
+            this.ratePerSecond = config.getRatePerSecond();
+            if (config.getThreads() <= 0) {
+                executor = null;
+                return;
+            }
+
+            executor = new ThreadPoolTaskExecutor();
+            executor.setThreadNamePrefix("dispatch-" + name + "-");
+            executor.setCorePoolSize(config.getThreads());
+            executor.setMaxPoolSize(config.getThreads());
+            executor.setQueueCapacity(config.getQueueCapacity());
+            // A full pool pushes back on the channel's own consumer threads, never on another channel
+            executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+            executor.setWaitForTasksToCompleteOnShutdown(true);
+            executor.setAwaitTerminationSeconds(30);
+            executor.initialize();
+            new ExecutorServiceMetrics(executor.getThreadPoolExecutor(), "dispatch." + name, Collections.emptyList())
+                    .bindTo(meterRegistry);
+        }
+
+        /**
+         * Blocks until the channel's budget for the current second has {@code permits} left.
+         */
+        void acquire(int permits) throws InterruptedException {
+            if (ratePerSecond <= 0) {
+                return;
+            }
+            while (true) {
+                long waitMillis;
+                synchronized (this) {
+                    long now = System.currentTimeMillis();
+                    if (now - windowStart >= 1000) {
+                        windowStart = now;
+                        available = ratePerSecond;
+                    }
+                    // A batch larger than the whole budget may still go out once per window
+                    if (available >= permits || available == ratePerSecond) {
+                        available = Math.max(0, available - permits);
+                        return;
+                    }
+                    waitMillis = windowStart + 1000 - now;
+                }
+                Thread.sleep(Math.max(1, waitMillis));
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.notification.service.dispatch;
+
+import com.notification.dto.NotificationDtos.SmsApiResponse;
+import com.notification.model.SmsRequest;
+import com.notification.model.SmsRequest.NotificationChannel;
+import com.notification.model.SmsRequest.SmsEncoding;
+import com.notification.model.SmsRequest.SmsPriority;
+import com.notification.service.AdmissionControlService;
+import com.notification.service.SmsApiService;
+import com.notification.service.VendorRateLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sends SMS through the provider router, one request per vendor call, within the
+ * priority lane's share of the vendor rate budget.
+ */
+@Component
+@RequiredArgsConstructor
+public class SmsChannelDispatcher implements ChannelDispatcher {
+
+    private final SmsApiService smsApiService;
+    private final VendorRateLimiter vendorRateLimiter;
+    private final AdmissionControlService admissionControlService;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<SmsPriority, Timer> laneLatencyTimers = new EnumMap<>(SmsPriority.class);
+
+    @PostConstruct
+    public void registerLaneMetrics() {
+        for (SmsPriority lane : SmsPriority.values()) {
+            laneLatencyTimers.put(lane, Timer.builder("sms.lane.latency")
+                    .description("Time from request acceptance to vendor dispatch")
+                    .tag("lane", lane.name())
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry));
+        }
+    }
+
+    @Override
+    public NotificationChannel getChannel() {
+        return NotificationChannel.SMS;
+    }
+
+    @Override
+    public List<SmsApiResponse> send(List<SmsRequest> batch) throws InterruptedException {
+        List<SmsApiResponse> responses = new ArrayList<>(batch.size());
+        for (SmsRequest smsRequest : batch) {
+            SmsPriority lane = SmsPriority.orDefault(smsRequest.getPriority());
+
+            // Wait for the lane's share of the vendor rate budget, counted in billed parts
+            int parts = smsRequest.getSegmentCount() != null ? smsRequest.getSegmentCount() : 1;
+            vendorRateLimiter.acquire(lane, parts);
+
+            SmsApiResponse apiResponse = smsApiService.sendSms(smsRequest);
+            admissionControlService.recordVendorResult(apiResponse.isSuccess());
+            laneLatencyTimers.get(lane).record(Duration.between(smsRequest.getCreatedAt(), LocalDateTime.now()));
+            if (apiResponse.isSuccess()) {
+                recordBilledParts(lane, smsRequest.getEncoding(), parts);
+            }
+            responses.add(apiResponse);
+        }
+        return responses;
+    }
+
+    private void recordBilledParts(SmsPriority lane, SmsEncoding encoding, int parts) {
+        Counter.builder("sms.billing.parts")
+                .description("SMS parts sent to the vendor")
+                .tag("lane", lane.name())
+                .tag("encoding", encoding != null ? encoding.name() : "UNKNOWN")
+                .register(meterRegistry)
+                .increment(parts);
+    }
+}
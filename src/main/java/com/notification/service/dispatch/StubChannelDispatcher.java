@@ -0,0 +1,64 @@
+package com.notification.service.dispatch;
+
+import com.notification.config.ChannelProperties;
+import com.notification.dto.NotificationDtos.SmsApiResponse;
+import com.notification.model.SmsRequest;
+import com.notification.model.SmsRequest.NotificationChannel;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An in-process stand-in for a channel's provider, with configurable latency, jitter and
+ * per-request failure rate. A batch costs one call's latency, like a real bulk API.
+ */
+@Slf4j
+public class StubChannelDispatcher implements ChannelDispatcher {
+
+    private final NotificationChannel channel;
+    private final long latencyMs;
+    private final long latencyJitterMs;
+    private final double failureRate;
+
+    public StubChannelDispatcher(NotificationChannel channel, ChannelProperties.Stub config) {
+        this.channel = channel;
+        this.latencyMs = config.getLatencyMs();
+        this.latencyJitterMs = config.getLatencyJitterMs();
+        this.failureRate = config.getFailureRate();
+    }
+
+    @Override
+    public NotificationChannel getChannel() {
+        return channel;
+    }
+
+    @Override
+    public List<SmsApiResponse> send(List<SmsRequest> batch) throws InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        TimeUnit.MILLISECONDS.sleep(latencyMs + (latencyJitterMs > 0 ? random.nextLong(latencyJitterMs + 1) : 0));
+
+        String provider = "stub-" + channel.name().toLowerCase();
+        List<SmsApiResponse> responses = new ArrayList<>(batch.size());
+        for (SmsRequest request : batch) {
+            if (random.nextDouble() < failureRate) {
+                responses.add(SmsApiResponse.builder()
+                        .success(false)
+                        .provider(provider)
+                        .errorCode("STUB_REJECTED")
+                        .errorMessage("Simulated rejection by " + provider)
+                        .build());
+            } else {
+                log.debug("Stub {} delivered correlation ID: {} to {}", channel, request.getCorrelationId(), request.getPhoneNumber());
+                responses.add(SmsApiResponse.builder()
+                        .success(true)
+                        .provider(provider)
+                        .messageId(provider.toUpperCase() + "_MSG_" + request.getCorrelationId())
+                        .build());
+            }
+        }
+        return responses;
+    }
+}
@@ -0,0 +1,185 @@
+package com.notification.service.provider;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.notification.config.ApplicationConfig;
+import com.notification.config.SmsProviderProperties;
+import com.notification.dto.NotificationDtos.SmsApiResponse;
+import com.notification.model.SmsRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A vendor reached over its JSON HTTP API, with a connection pool of its own so that a
+ * slow vendor cannot exhaust connections needed by the others.
+ */
+@Slf4j
+public class HttpSmsProvider implements SmsProvider {
+
+    private final String name;
+    private final String url;
+    private final String apiKey;
+    private final ObjectMapper objectMapper;
+    private final CloseableHttpClient httpClient;
+    private final RestTemplate restTemplate;
+
+    public HttpSmsProvider(SmsProviderProperties.Provider config, ObjectMapper objectMapper) {
+        this.name = config.getName();
+        this.url = config.getUrl();
+        this.apiKey = config.getApiKey();
+        this.objectMapper = objectMapper;
+
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(config.getMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(config.getMaxConnections());
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .build();
+
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        requestFactory.setConnectTimeout(config.getConnectTimeoutMs());
+        requestFactory.setConnectionRequestTimeout(config.getConnectTimeoutMs());
+        requestFactory.setReadTimeout(config.getReadTimeoutMs());
+        this.restTemplate = new RestTemplate(requestFactory);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public SmsApiResponse send(SmsRequest smsRequest, String text) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set(ApplicationConfig.AUTHORIZATION_HEADER, apiKey);
+
+        String responseBody;
+        try {
+            responseBody = restTemplate.postForObject(url,
+                    new HttpEntity<>(createRequestPayload(smsRequest, text), headers), String.class);
+        } catch (HttpClientErrorException e) {
+            // Throttling, auth and timeout statuses are about this vendor, not the message;
+            // let the router fail over and count them against the breaker
+            if (!isMessageRejected(e.getRawStatusCode())) {
+                throw e;
+            }
+            // The vendor refused this message; another vendor would refuse it too
+            return SmsApiResponse.builder()
+                    .success(false)
+                    .provider(name)
+                    .errorCode("HTTP_" + e.getRawStatusCode())
+                    .errorMessage(e.getResponseBodyAsString())
+                    .build();
+        }
+        // Server errors, vendor-side client errors and I/O failures propagate to the router
+        return parseApiResponse(responseBody);
+    }
+
+    private boolean isMessageRejected(int statusCode) {
+        return statusCode == HttpStatus.BAD_REQUEST.value() || statusCode == HttpStatus.UNPROCESSABLE_ENTITY.value();
+    }
+
+    @Override
+    public void warmUp(SmsRequest sample, String text) {
+        try {
+            objectMapper.writeValueAsString(createRequestPayload(sample, text));
+        } catch (IOException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void openConnections() {
+        // A HEAD carries no message; any status will do, the pooled connection is the point
+        try {
+            restTemplate.headForHeaders(url);
+        } catch (RestClientException e) {
+            log.debug("Warm-up request to SMS provider {} returned: {}", name, e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            httpClient.close();
+        } catch (IOException e) {
+            log.warn("Error closing HTTP client of SMS provider {}", name, e);
+        }
+    }
+
+    private List<Map<String, Object>> createRequestPayload(SmsRequest smsRequest, String text) {
+        List<Map<String, Object>> payload = new ArrayList<>();
+
+        Map<String, Object> request = new HashMap<>();
+        request.put("deliverychannel", ApplicationConfig.SMS_API_DELIVERY_CHANNEL);
+
+        Map<String, Object> channels = new HashMap<>();
+        Map<String, Object> smsChannel = new HashMap<>();
+        smsChannel.put("text", text);
+        channels.put(ApplicationConfig.SMS_API_CHANNEL_TYPE, smsChannel);
+        request.put("channels", channels);
+
+        Map<String, Object> destination = new HashMap<>();
+        List<String> msisdn = new ArrayList<>();
+        msisdn.add(smsRequest.getPhoneNumber());
+        destination.put("msisdn", msisdn);
+        destination.put("correlationid", smsRequest.getCorrelationId());
+
+        List<Map<String, Object>> destinations = new ArrayList<>();
+        destinations.add(destination);
+        request.put("destination", destinations);
+
+        payload.add(request);
+        return payload;
+    }
+
+    private SmsApiResponse parseApiResponse(String responseBody) {
+        try {
+            JsonNode responseNode = objectMapper.readTree(responseBody);
+
+            // Check if response indicates success (this may need adjustment based on actual API response format)
+            if (responseNode.has("status") && "success".equalsIgnoreCase(responseNode.get("status").asText())) {
+                String messageId = responseNode.has("message_id") ? responseNode.get("message_id").asText() : null;
+                return SmsApiResponse.builder()
+                        .success(true)
+                        .provider(name)
+                        .messageId(messageId)
+                        .build();
+            } else {
+                String errorCode = responseNode.has("error_code") ? responseNode.get("error_code").asText() : "UNKNOWN_ERROR";
+                String errorMessage = responseNode.has("error_message") ? responseNode.get("error_message").asText() : "Unknown error";
+                return SmsApiResponse.builder()
+                        .success(false)
+                        .provider(name)
+                        .errorCode(errorCode)
+                        .errorMessage(errorMessage)
+                        .build();
+            }
+        } catch (Exception e) {
+            log.error("Error parsing SMS API response from {}: {}", name, responseBody, e);
+            return SmsApiResponse.builder()
+                    .success(false)
+                    .provider(name)
+                    .errorCode("PARSE_ERROR")
+                    .errorMessage("Error parsing API response: " + e.getMessage())
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.notification.service.provider;
+
+import com.notification.config.SmsProviderProperties;
+import com.notification.dto.NotificationDtos.SmsApiResponse;
+import com.notification.model.SmsRequest;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An in-process stand-in for a vendor, with configurable latency, jitter and failure
+ * rate. Used for local runs and for benchmarking the routing without real sends.
+ */
+public class SimulatedSmsProvider implements SmsProvider {
+
+    private final String name;
+    private final long latencyMs;
+    private final long latencyJitterMs;
+    private final double failureRate;
+
+    public SimulatedSmsProvider(SmsProviderProperties.Provider config) {
+        this.name = config.getName();
+        this.latencyMs = config.getLatencyMs();
+        this.latencyJitterMs = config.getLatencyJitterMs();
+        this.failureRate = config.getFailureRate();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public SmsApiResponse send(SmsRequest smsRequest, String text) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long delay = latencyMs + (latencyJitterMs > 0 ? random.nextLong(latencyJitterMs + 1) : 0);
+        try {
+            TimeUnit.MILLISECONDS.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while sending via " + name, e);
+        }
+
+        if (random.nextDouble() < failureRate) {
+            throw new IllegalStateException("Simulated failure of provider " + name);
+        }
+        return SmsApiResponse.builder()
+                .success(true)
+                .provider(name)
+                .messageId(name.toUpperCase() + "_MSG_" + System.currentTimeMillis())
+                .build();
+    }
+}
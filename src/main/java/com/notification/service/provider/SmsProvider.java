@@ -0,0 +1,37 @@
+package com.notification.service.provider;
+
+import com.notification.dto.NotificationDtos.SmsApiResponse;
+import com.notification.model.SmsRequest;
+
+/**
+ * A vendor that can deliver an SMS.
+ *
+ * Implementations own their connection pool and timeouts. A definitive rejection by the
+ * vendor (bad number, content refused) is returned as an unsuccessful response; transport
+ * errors, timeouts and vendor-side server errors are thrown, so that the router can fail
+ * over to another provider.
+ */
+public interface SmsProvider {
+
+    String getName();
+
+    SmsApiResponse send(SmsRequest smsRequest, String text);
+
+    /**
+     * Runs the request-building path on a synthetic request without sending it.
+     */
+    default void warmUp(SmsRequest sample, String text) {
+    }
+
+    /**
+     * Opens pooled connections ahead of the first send, without delivering anything.
+     */
+    default void openConnections() {
+    }
+
+    /**
+     * Releases pooled connections. Called once on shutdown.
+     */
+    default void close() {
+    }
+}
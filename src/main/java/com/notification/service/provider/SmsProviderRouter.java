@@ -0,0 +1,240 @@
+package com.notification.service.provider;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.notification.config.SmsProviderProperties;
+import com.notification.dto.NotificationDtos.SmsApiResponse;
+import com.notification.model.SmsRequest;
+import com.notification.model.SmsRequest.SmsPriority;
+import com.notification.util.CircuitBreaker;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Picks the SMS provider for each send and fails over between providers.
+ *
+ * Providers are ranked per send by a score in milliseconds: the moving average of their
+ * latency, plus a penalty for their moving error rate, plus their cost per part (ignored
+ * for HIGH sends, which only care about speed). Providers whose circuit breaker is open
+ * are skipped. If the chosen provider throws, the next one is tried within the same
+ * attempt, so one vendor's outage or latency spike does not fail the send.
+ *
+ * A provider that is ranked last receives no traffic to correct its averages, so while
+ * it is idle they decay back towards its expected latency and a zero error rate, and it
+ * is eventually tried again. Simulated providers are only used when no real provider
+ * is enabled.
+ */
+@Service
+@Slf4j
+public class SmsProviderRouter {
+
+    private final SmsProviderProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final List<ProviderHandle> handles = new ArrayList<>();
+
+    public SmsProviderRouter(SmsProviderProperties properties, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        boolean realProviderEnabled = false;
+        for (SmsProviderProperties.Provider config : properties.getProviders()) {
+            realProviderEnabled |= config.isEnabled() && config.getType() != SmsProviderProperties.Type.SIMULATED;
+        }
+        for (SmsProviderProperties.Provider config : properties.getProviders()) {
+            if (!config.isEnabled()) {
+                continue;
+            }
+            if (realProviderEnabled && config.getType() == SmsProviderProperties.Type.SIMULATED) {
+                log.warn("Ignoring simulated SMS provider {} because a real provider is enabled", config.getName());
+                continue;
+            }
+            SmsProvider provider = config.getType() == SmsProviderProperties.Type.SIMULATED
+                    ? new SimulatedSmsProvider(config)
+                    : new HttpSmsProvider(config, objectMapper);
+            ProviderHandle handle = new ProviderHandle(provider, config);
+            Gauge.builder("sms.provider.latency.ewma", handle, ProviderHandle::getLatencyEwma)
+                    .tag("provider", config.getName())
+                    .baseUnit("milliseconds")
+                    .register(meterRegistry);
+            Gauge.builder("sms.provider.error.rate", handle, ProviderHandle::getErrorRate)
+                    .tag("provider", config.getName())
+                    .register(meterRegistry);
+            handles.add(handle);
+        }
+        if (handles.isEmpty()) {
+            throw new IllegalStateException("No SMS provider is enabled under sms.vendors.providers");
+        }
+        log.info("Routing SMS across providers: {}", getProviderNames());
+    }
+
+    @PreDestroy
+    public void close() {
+        for (ProviderHandle handle : handles) {
+            handle.provider.close();
+        }
+    }
+
+    public SmsApiResponse send(SmsRequest smsRequest, String text) {
+        SmsPriority priority = SmsPriority.orDefault(smsRequest.getPriority());
+        List<ProviderHandle> ranked = rank(priority);
+
+        Exception lastError = null;
+        for (ProviderHandle handle : ranked) {
+            if (!handle.breaker.allowRequest()) {
+                continue;
+            }
+            String name = handle.provider.getName();
+            long start = System.nanoTime();
+            try {
+                SmsApiResponse response = handle.provider.send(smsRequest, text);
+                long elapsed = System.nanoTime() - start;
+                // A rejection is still a healthy, timely answer from the vendor
+                handle.record(elapsed, false);
+                handle.breaker.recordSuccess();
+                timer(name, response.isSuccess() ? "success" : "rejected").record(elapsed, TimeUnit.NANOSECONDS);
+                return response;
+            } catch (Exception e) {
+                long elapsed = System.nanoTime() - start;
+                handle.record(elapsed, true);
+                handle.breaker.recordFailure();
+                timer(name, "error").record(elapsed, TimeUnit.NANOSECONDS);
+                lastError = e;
+                log.warn("SMS provider {} failed for correlation ID: {}, failing over: {}",
+                        name, smsRequest.getCorrelationId(), e.getMessage());
+            }
+        }
+
+        if (lastError == null) {
+            return SmsApiResponse.builder()
+                    .success(false)
+                    .errorCode("NO_PROVIDER_AVAILABLE")
+                    .errorMessage("All SMS providers are circuit-broken")
+                    .build();
+        }
+        return SmsApiResponse.builder()
+                .success(false)
+                .errorCode("ALL_PROVIDERS_FAILED")
+                .errorMessage("API Error: " + lastError.getMessage())
+                .build();
+    }
+
+    public void warmUp(SmsRequest sample, String text) {
+        rank(SmsPriority.orDefault(sample.getPriority()));
+        for (ProviderHandle handle : handles) {
+            handle.provider.warmUp(sample, text);
+        }
+    }
+
+    public void openConnections() {
+        for (ProviderHandle handle : handles) {
+            handle.provider.openConnections();
+        }
+    }
+
+    public List<String> getProviderNames() {
+        List<String> names = new ArrayList<>(handles.size());
+        for (ProviderHandle handle : handles) {
+            names.add(handle.provider.getName());
+        }
+        return names;
+    }
+
+    public List<CircuitBreaker> getCircuitBreakers() {
+        List<CircuitBreaker> breakers = new ArrayList<>(handles.size());
+        for (ProviderHandle handle : handles) {
+            breakers.add(handle.breaker);
+        }
+        return breakers;
+    }
+
+    private List<ProviderHandle> rank(SmsPriority priority) {
+        if (handles.size() == 1) {
+            return handles;
+        }
+        long costWeightMs = priority == SmsPriority.HIGH ? 0 : properties.getCostWeightMs();
+        long errorPenaltyMs = properties.getErrorPenaltyMs();
+
+        // Snapshot each score once, so the order cannot shift while sorting
+        List<ScoredHandle> scored = new ArrayList<>(handles.size());
+        for (ProviderHandle handle : handles) {
+            double score = handle.getLatencyEwma() + handle.getErrorRate() * errorPenaltyMs
+                    + handle.config.getCostPerPart() * costWeightMs;
+            scored.add(new ScoredHandle(handle, score));
+        }
+        Collections.sort(scored, Comparator.<ScoredHandle>comparingDouble(entry -> entry.score)
+                .thenComparingInt(entry -> entry.handle.config.getPriority()));
+
+        List<ProviderHandle> ranked = new ArrayList<>(scored.size());
+        for (ScoredHandle entry : scored) {
+            ranked.add(entry.handle);
+        }
+        return ranked;
+    }
+
+    private Timer timer(String provider, String outcome) {
+        return meterRegistry.timer("sms.provider.request", "provider", provider, "outcome", outcome);
+    }
+
+    private static final class ScoredHandle {
+        private final ProviderHandle handle;
+        private final double score;
+
+        ScoredHandle(ProviderHandle handle, double score) {
+            this.handle = handle;
+            this.score = score;
+        }
+    }
+
+    private final class ProviderHandle {
+        private final SmsProvider provider;
+        private final SmsProviderProperties.Provider config;
+        private final CircuitBreaker breaker;
+
+        private double latencyEwma;
+        private double errorRate;
+        private long lastDecayNanos = System.nanoTime();
+
+        ProviderHandle(SmsProvider provider, SmsProviderProperties.Provider config) {
+            this.provider = provider;
+            this.config = config;
+            this.breaker = new CircuitBreaker("sms-provider-" + config.getName(),
+                    config.getFailureThreshold(), config.getOpenMillis());
+            this.latencyEwma = config.getExpectedLatencyMs();
+        }
+
+        synchronized void record(long elapsedNanos, boolean failed) {
+            decay();
+            double alpha = properties.getEwmaAlpha();
+            latencyEwma += alpha * (TimeUnit.NANOSECONDS.toMillis(elapsedNanos) - latencyEwma);
+            errorRate += alpha * ((failed ? 1 : 0) - errorRate);
+        }
+
+        synchronized double getLatencyEwma() {
+            decay();
+            return latencyEwma;
+        }
+
+        synchronized double getErrorRate() {
+            decay();
+            return errorRate;
+        }
+
+        // Moves the averages back towards their starting point by the time elapsed since the last call
+        private void decay() {
+            long now = System.nanoTime();
+            double elapsedMillis = TimeUnit.NANOSECONDS.toMillis(now - lastDecayNanos);
+            lastDecayNanos = now;
+            double remaining = Math.pow(0.5, elapsedMillis / properties.getRecoveryHalfLifeMs());
+            latencyEwma = config.getExpectedLatencyMs() + (latencyEwma - config.getExpectedLatencyMs()) * remaining;
+            errorRate *= remaining;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.notification.util;
+
+import com.notification.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * A fixed-size thread pool with a bounded queue and a response deadline, used to run the
+ * blocking part of a group of endpoints off the servlet container's threads.
+ *
+ * When the queue is full, or a request is not answered within {@code timeoutMillis}, the
+ * request fails fast with a {@link ServiceOverloadedException} instead of waiting, so a
+ * slow dependency only degrades the endpoints behind its own bulkhead. A request that
+ * times out while still queued is cancelled and never runs.
+ *
+ * A task that must not be abandoned halfway, such as a send that persists and publishes,
+ * calls {@link #commit()} first. After that the deadline no longer answers 503 and the
+ * request is answered when the task finishes, so a client is never told to retry work
+ * that went ahead anyway.
+ */
+public class Bulkhead {
+
+    // Committed work may run this many deadlines in total before the request is failed anyway
+    private static final int COMMITTED_TIMEOUT_FACTOR = 3;
+
+    private static final ThreadLocal<Task> CURRENT_TASK = new ThreadLocal<>();
+
+    private enum Phase {
+        PENDING,
+        COMMITTED,
+        ABANDONED
+    }
+
+    private final String name;
+    private final long timeoutMillis;
+    private final long retryAfterSeconds;
+    private final ThreadPoolTaskExecutor executor;
+    private final ScheduledExecutorService deadlines;
+    private final Counter rejected;
+    private final Counter timedOut;
+
+    public Bulkhead(String name, int threads, int queueCapacity, long timeoutMillis, long retryAfterSeconds,
+                    MeterRegistry meterRegistry) {
+        this.name = name;
+        this.timeoutMillis = timeoutMillis;
+        this.retryAfterSeconds = retryAfterSeconds;
+
+        executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("bulkhead-" + name + "-");
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        deadlines = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bulkhead-" + name + "-deadlines");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // executor.pool.size, executor.active, executor.queued, executor.queue.remaining, ...
+        new ExecutorServiceMetrics(executor.getThreadPoolExecutor(), "bulkhead." + name, Collections.emptyList())
+                .bindTo(meterRegistry);
+        rejected = Counter.builder("bulkhead.rejected").tag("bulkhead", name)
+                .description("Requests refused because the bulkhead queue was full")
+                .register(meterRegistry);
+        timedOut = Counter.builder("bulkhead.timeouts").tag("bulkhead", name)
+                .description("Requests not answered within the bulkhead deadline")
+                .register(meterRegistry);
+    }
+
+    public <T> DeferredResult<T> submit(Supplier<T> task) {
+        DeferredResult<T> result = new DeferredResult<>(timeoutMillis * COMMITTED_TIMEOUT_FACTOR);
+        Task state = new Task();
+        Future<?> future;
+        try {
+            future = executor.submit(() -> {
+                CURRENT_TASK.set(state);
+                try {
+                    result.setResult(task.get());
+                } catch (Throwable e) {
+                    result.setErrorResult(e);
+                } finally {
+                    CURRENT_TASK.remove();
+                }
+            });
+        } catch (TaskRejectedException e) {
+            rejected.increment();
+            result.setErrorResult(new ServiceOverloadedException(
+                    "Too many concurrent requests on " + name + ", retry later", retryAfterSeconds));
+            return result;
+        }
+
+        ScheduledFuture<?> deadline = deadlines.schedule(() -> {
+            if (!result.isSetOrExpired() && state.phase.compareAndSet(Phase.PENDING, Phase.ABANDONED)) {
+                timeOut(result, future);
+            }
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+        result.onCompletion(() -> deadline.cancel(false));
+        // Only reached by committed work that overran the extended deadline
+        result.onTimeout(() -> timeOut(result, future));
+        return result;
+    }
+
+    /**
+     * Marks the calling task as past its point of no return; see the class comment. Throws
+     * a {@link ServiceOverloadedException} if the deadline already passed, so the task
+     * stops before doing that work. Does nothing outside a bulkhead task.
+     */
+    public static void commit() {
+        Task task = CURRENT_TASK.get();
+        if (task != null && !task.phase.compareAndSet(Phase.PENDING, Phase.COMMITTED)
+                && task.phase.get() == Phase.ABANDONED) {
+            throw new ServiceOverloadedException("Request deadline passed before the work was committed", 0);
+        }
+    }
+
+    /**
+     * Runs a streamed response body on the bulkhead's threads. A stream has no deadline, it
+     * lasts as long as the client takes to read it, but it takes a thread of the pool like
+     * any other request, and a full queue fails it with a 503 before anything is written.
+     */
+    public StreamingResponseBody stream(StreamingResponseBody body) {
+        return outputStream -> {
+            Future<Void> future;
+            try {
+                future = executor.submit((Callable<Void>) () -> {
+                    body.writeTo(outputStream);
+                    return null;
+                });
+            } catch (TaskRejectedException e) {
+                rejected.increment();
+                throw new ServiceOverloadedException(
+                        "Too many concurrent requests on " + name + ", retry later", retryAfterSeconds);
+            }
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                future.cancel(true);
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while streaming on " + name);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new IOException(cause);
+            }
+        };
+    }
+
+    private void timeOut(DeferredResult<?> result, Future<?> future) {
+        timedOut.increment();
+        future.cancel(false);
+        result.setErrorResult(new ServiceOverloadedException(
+                "Request on " + name + " timed out after " + timeoutMillis + " ms, retry later", retryAfterSeconds));
+    }
+
+    public void shutdown() {
+        deadlines.shutdownNow();
+        executor.shutdown();
+    }
+
+    private static final class Task {
+        private final AtomicReference<Phase> phase = new AtomicReference<>(Phase.PENDING);
+    }
+}
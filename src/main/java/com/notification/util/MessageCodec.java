@@ -0,0 +1,113 @@
+package com.notification.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compact storage format for SMS bodies.
+ *
+ * Bodies are raw Deflate streams primed with a preset dictionary of phrases that recur in
+ * our transactional traffic, which is what makes compression pay off on texts of only a
+ * few hundred bytes. The first byte names the format, so the dictionary can be retrained
+ * later without rewriting stored rows: add a new version and keep decoding the old ones.
+ * Bodies that would not shrink are stored as plain UTF-8.
+ */
+public final class MessageCodec {
+
+    private static final byte FORMAT_PLAIN = 0;
+    private static final byte FORMAT_DEFLATE_V1 = 1;
+
+    private static final byte[] DICTIONARY_V1 = loadDictionary("/sms/deflate-dictionary-v1.txt");
+
+    // Deflater and Inflater hold native buffers; reuse one of each per thread
+    private static final ThreadLocal<Deflater> DEFLATERS =
+            ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_COMPRESSION, true));
+    private static final ThreadLocal<Inflater> INFLATERS =
+            ThreadLocal.withInitial(() -> new Inflater(true));
+
+    private MessageCodec() {
+    }
+
+    public static byte[] encode(String message) {
+        byte[] plain = message.getBytes(StandardCharsets.UTF_8);
+
+        Deflater deflater = DEFLATERS.get();
+        deflater.reset();
+        deflater.setDictionary(DICTIONARY_V1);
+        deflater.setInput(plain);
+        deflater.finish();
+
+        // Anything not smaller than the plain body is useless; cap the buffer there
+        byte[] buffer = new byte[plain.length + 1];
+        buffer[0] = FORMAT_DEFLATE_V1;
+        int length = 1;
+        while (!deflater.finished() && length < buffer.length) {
+            length += deflater.deflate(buffer, length, buffer.length - length);
+        }
+        if (deflater.finished() && length < buffer.length) {
+            return Arrays.copyOf(buffer, length);
+        }
+
+        byte[] stored = new byte[plain.length + 1];
+        stored[0] = FORMAT_PLAIN;
+        System.arraycopy(plain, 0, stored, 1, plain.length);
+        return stored;
+    }
+
+    public static String decode(byte[] encoded) {
+        switch (encoded[0]) {
+            case FORMAT_PLAIN:
+                return new String(encoded, 1, encoded.length - 1, StandardCharsets.UTF_8);
+            case FORMAT_DEFLATE_V1:
+                return inflate(encoded, DICTIONARY_V1);
+            default:
+                throw new IllegalArgumentException("Unknown message body format: " + encoded[0]);
+        }
+    }
+
+    private static String inflate(byte[] encoded, byte[] dictionary) {
+        Inflater inflater = INFLATERS.get();
+        inflater.reset();
+        inflater.setDictionary(dictionary);
+        inflater.setInput(encoded, 1, encoded.length - 1);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(encoded.length * 4);
+        byte[] buffer = new byte[512];
+        try {
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("Truncated message body");
+                }
+                out.write(buffer, 0, count);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt message body", e);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] loadDictionary(String resource) {
+        try (InputStream in = MessageCodec.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing compression dictionary " + resource);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int count;
+            while ((count = in.read(buffer)) > 0) {
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
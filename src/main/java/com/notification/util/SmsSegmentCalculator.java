@@ -0,0 +1,126 @@
+package com.notification.util;
+
+import com.notification.model.SmsRequest.SmsEncoding;
+
+/**
+ * Works out how a message will be encoded on the air interface (GSM 03.38 7-bit or UCS-2)
+ * and how many SMS parts it will cost.
+ *
+ * The whole analysis is a table lookup per character and allocates nothing: the result is
+ * packed into a single {@code long} and read back with the static accessors.
+ */
+public final class SmsSegmentCalculator {
+
+    private static final String GSM_BASIC_CHARSET =
+            "@£$¥èéùìòÇ\nØø\rÅåΔ_ΦΓΛΩΠΨΣΘΞÆæßÉ !\"#¤%&'()*+,-./0123456789:;<=>?"
+                    + "¡ABCDEFGHIJKLMNOPQRSTUVWXYZÄÖÑÜ§¿abcdefghijklmnopqrstuvwxyzäöñüà";
+    private static final String GSM_EXTENDED_CHARSET = "\f^{}\\[~]|€";
+
+    private static final byte NOT_GSM = 0;
+    private static final byte GSM_BASIC = 1;
+    private static final byte GSM_EXTENDED = 2;
+    private static final byte[] CHARSET = new byte[Character.MAX_VALUE + 1];
+
+    private static final int GSM_SINGLE_LIMIT = 160;
+    private static final int GSM_MULTIPART_LIMIT = 153;
+    private static final int UCS2_SINGLE_LIMIT = 70;
+    private static final int UCS2_MULTIPART_LIMIT = 67;
+
+    private static final int FIELD_BITS = 20;
+    private static final long FIELD_MASK = (1L << FIELD_BITS) - 1;
+    private static final long UCS2_FLAG = 1L << 62;
+
+    static {
+        for (int i = 0; i < GSM_BASIC_CHARSET.length(); i++) {
+            CHARSET[GSM_BASIC_CHARSET.charAt(i)] = GSM_BASIC;
+        }
+        for (int i = 0; i < GSM_EXTENDED_CHARSET.length(); i++) {
+            CHARSET[GSM_EXTENDED_CHARSET.charAt(i)] = GSM_EXTENDED;
+        }
+    }
+
+    private SmsSegmentCalculator() {
+    }
+
+    /**
+     * Analyzes the text and returns the packed result. An empty message still costs one part.
+     */
+    public static long analyze(CharSequence text) {
+        int length = text.length();
+        int septets = 0;
+        int extended = 0;
+        for (int i = 0; i < length; i++) {
+            byte type = CHARSET[text.charAt(i)];
+            if (type == NOT_GSM) {
+                int segments = length <= UCS2_SINGLE_LIMIT ? 1 : countSegments(text, false);
+                return pack(true, segments, 0, length);
+            }
+            if (type == GSM_EXTENDED) {
+                extended++;
+                septets += 2;
+            } else {
+                septets++;
+            }
+        }
+        int segments = septets <= GSM_SINGLE_LIMIT ? 1 : countSegments(text, true);
+        return pack(false, segments, extended, septets);
+    }
+
+    public static SmsEncoding encoding(long result) {
+        return (result & UCS2_FLAG) != 0 ? SmsEncoding.UCS_2 : SmsEncoding.GSM_7;
+    }
+
+    public static int segments(long result) {
+        return (int) ((result >>> (FIELD_BITS * 2)) & FIELD_MASK);
+    }
+
+    /**
+     * Number of GSM extended characters, each of which costs two septets.
+     */
+    public static int extendedChars(long result) {
+        return (int) ((result >>> FIELD_BITS) & FIELD_MASK);
+    }
+
+    /**
+     * Encoded length: septets for GSM-7, 16-bit code units for UCS-2.
+     */
+    public static int units(long result) {
+        return (int) (result & FIELD_MASK);
+    }
+
+    /**
+     * Packs multipart messages exactly: an escape sequence or a surrogate pair is never
+     * split across two parts, so the count can exceed a plain division.
+     */
+    private static int countSegments(CharSequence text, boolean gsm) {
+        int limit = gsm ? GSM_MULTIPART_LIMIT : UCS2_MULTIPART_LIMIT;
+        int length = text.length();
+        int segments = 1;
+        int used = 0;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            int size;
+            if (gsm) {
+                size = CHARSET[c] == GSM_EXTENDED ? 2 : 1;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                size = 2;
+                i++;
+            } else {
+                size = 1;
+            }
+            if (used + size > limit) {
+                segments++;
+                used = 0;
+            }
+            used += size;
+        }
+        return segments;
+    }
+
+    private static long pack(boolean ucs2, int segments, int extended, int units) {
+        return (ucs2 ? UCS2_FLAG : 0)
+                | ((Math.min(segments, FIELD_MASK)) << (FIELD_BITS * 2))
+                | ((Math.min(extended, FIELD_MASK)) << FIELD_BITS)
+                | Math.min(units, FIELD_MASK);
+    }
+}
@@ -0,0 +1,122 @@
+package com.notification.benchmark;
+
+import com.notification.util.MessageCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Storage savings and CPU cost of {@link MessageCodec} over a corpus shaped like our
+ * transactional traffic: the usual templates with varying order ids, amounts, dates, OTPs
+ * and links, plus some free text the dictionary knows nothing about.
+ *
+ * The size of the corpus before and after encoding is printed once per fork; encode and
+ * decode are timed per message, cycling through the corpus.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageCodecBenchmark {
+
+    private static final int CORPUS_SIZE = 20000;
+
+    private static final String[] TEMPLATES = {
+            "%s is your OTP for login. It is valid for 10 minutes. Do not share this OTP with anyone, including our staff.",
+            "Your order has been placed successfully. Order ID: %s. Thank you for shopping with us. Download the app for exclusive offers and faster checkout.",
+            "Your order with order ID %s has been shipped via BlueDart and will be delivered by %s. Track your order here: https://example.com/t/%s",
+            "Your payment of Rs. %s was successful. Transaction ID: %s. For any queries contact our support team.",
+            "Your refund of Rs. %s has been initiated and will be credited to your original payment method within 5-7 working days. Order ID: %s",
+            "Your order is out for delivery today. Please keep the exact cash ready for Cash on Delivery. Amount due: Rs. %s",
+            "Your return request has been accepted. Our courier partner will pick up the product within 2 days. Return ID: %s",
+            "Hi %s, the weekend sale starts at midnight with up to %s%% off on electronics and home appliances. Limited stock!",
+    };
+
+    private static final String[] DATES = {"21 Oct", "22 Oct", "24 Oct", "28 Oct", "2 Nov"};
+    private static final String[] NAMES = {"Asha", "Rahul", "Meera", "Vikram", "Priya", "Arjun"};
+
+    private String[] messages;
+    private byte[][] encoded;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        messages = new String[CORPUS_SIZE];
+        encoded = new byte[CORPUS_SIZE][];
+        long rawBytes = 0;
+        long encodedBytes = 0;
+        for (int i = 0; i < CORPUS_SIZE; i++) {
+            messages[i] = message(random);
+            encoded[i] = MessageCodec.encode(messages[i]);
+            rawBytes += messages[i].getBytes(StandardCharsets.UTF_8).length;
+            encodedBytes += encoded[i].length;
+        }
+        System.out.printf("%nCorpus of %d messages: %d bytes raw, %d bytes encoded (%.1f%% of raw, %.1f bytes saved per message)%n",
+                CORPUS_SIZE, rawBytes, encodedBytes, 100.0 * encodedBytes / rawBytes,
+                (double) (rawBytes - encodedBytes) / CORPUS_SIZE);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return MessageCodec.encode(messages[nextIndex()]);
+    }
+
+    @Benchmark
+    public String decode() {
+        return MessageCodec.decode(encoded[nextIndex()]);
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = index + 1 == CORPUS_SIZE ? 0 : index + 1;
+        return index;
+    }
+
+    private static String message(Random random) {
+        String orderId = "OD" + (100000000L + random.nextInt(900000000));
+        String amount = (99 + random.nextInt(20000)) + "." + (random.nextInt(90) + 10);
+        switch (random.nextInt(TEMPLATES.length)) {
+            case 0:
+                return String.format(TEMPLATES[0], 100000 + random.nextInt(900000));
+            case 1:
+                return String.format(TEMPLATES[1], orderId);
+            case 2:
+                return String.format(TEMPLATES[2], orderId, DATES[random.nextInt(DATES.length)],
+                        Long.toString(random.nextLong() & Long.MAX_VALUE, 36));
+            case 3:
+                return String.format(TEMPLATES[3], amount, "TXN" + (random.nextLong() & Long.MAX_VALUE));
+            case 4:
+                return String.format(TEMPLATES[4], amount, orderId);
+            case 5:
+                return String.format(TEMPLATES[5], amount);
+            case 6:
+                return String.format(TEMPLATES[6], "RT" + random.nextInt(10000000));
+            default:
+                return String.format(TEMPLATES[7], NAMES[random.nextInt(NAMES.length)], 10 + random.nextInt(60));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MessageCodecBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
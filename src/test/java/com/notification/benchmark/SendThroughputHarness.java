@@ -0,0 +1,154 @@
+package com.notification.benchmark;
+
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Finds the highest request rate a running instance sustains on POST /sms/send.
+ *
+ * Load is open-loop: requests are started on a fixed schedule whether or not earlier ones
+ * have been answered, and latency is measured from the scheduled start, so a saturated
+ * server shows up as growing latency instead of silently lowering the offered rate. The
+ * rate is raised step by step; a step is sustained when at least 99% of its requests get
+ * a 2xx and its p99 latency stays under the limit. The last sustained step is reported.
+ * A warm-up at the starting rate runs first and is not judged, so connection setup and
+ * JIT compilation on both sides do not fail the first step.
+ *
+ * Run it against two builds, e.g. before and after the send bulkhead, with the same
+ * MySQL, Redis and Kafka behind them and admission control relaxed so shedding does not
+ * cap the result:
+ *
+ * <pre>
+ * java -cp &lt;test classpath&gt; -Durl=http://localhost:8080/v1/sms/send -Dauthorization=&lt;key&gt; \
+ *     com.notification.benchmark.SendThroughputHarness
+ * </pre>
+ *
+ * Other properties, with their defaults: startRps=100, stepRps=100, maxRps=5000,
+ * stepSeconds=20, warmupSeconds=10, p99Ms=500, threads=1024.
+ */
+public class SendThroughputHarness {
+
+    private final String url;
+    private final String authorization;
+    private final long p99Millis;
+    private final CloseableHttpClient httpClient;
+    private final ExecutorService clients;
+    private final AtomicLong sequence = new AtomicLong();
+
+    private SendThroughputHarness(String url, String authorization, long p99Millis, int threads) {
+        this.url = url;
+        this.authorization = authorization;
+        this.p99Millis = p99Millis;
+
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(threads);
+        connectionManager.setDefaultMaxPerRoute(threads);
+        this.httpClient = HttpClients.custom().setConnectionManager(connectionManager).build();
+        this.clients = Executors.newFixedThreadPool(threads);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int startRps = Integer.getInteger("startRps", 100);
+        int stepRps = Integer.getInteger("stepRps", 100);
+        int maxRps = Integer.getInteger("maxRps", 5000);
+        int stepSeconds = Integer.getInteger("stepSeconds", 20);
+        SendThroughputHarness harness = new SendThroughputHarness(
+                System.getProperty("url", "http://localhost:8080/v1/sms/send"),
+                System.getProperty("authorization", "benchmark"),
+                Long.getLong("p99Ms", 500),
+                Integer.getInteger("threads", 1024));
+
+        int sustained = 0;
+        try {
+            System.out.print("warm-up ");
+            harness.runStep(startRps, Integer.getInteger("warmupSeconds", 10));
+            for (int rps = startRps; rps <= maxRps; rps += stepRps) {
+                if (!harness.runStep(rps, stepSeconds)) {
+                    break;
+                }
+                sustained = rps;
+            }
+        } finally {
+            harness.clients.shutdownNow();
+            harness.httpClient.close();
+        }
+        System.out.printf("Max sustained rate: %d requests/s%n", sustained);
+    }
+
+    private boolean runStep(int rps, int seconds) throws InterruptedException {
+        int total = rps * seconds;
+        long[] latencies = new long[total];
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicLong completed = new AtomicLong();
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rps;
+
+        long stepStart = System.nanoTime();
+        for (int i = 0; i < total; i++) {
+            long scheduled = stepStart + i * intervalNanos;
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            int index = i;
+            clients.execute(() -> {
+                if (send()) {
+                    succeeded.incrementAndGet();
+                }
+                latencies[index] = System.nanoTime() - scheduled;
+                completed.incrementAndGet();
+            });
+        }
+        // Give stragglers a few times the latency limit before counting them as lost
+        long drainDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(p99Millis * 4);
+        while (completed.get() < total && System.nanoTime() < drainDeadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+
+        long[] sorted = latencies.clone();
+        for (int i = 0; i < sorted.length; i++) {
+            if (sorted[i] == 0) {
+                sorted[i] = Long.MAX_VALUE;
+            }
+        }
+        Arrays.sort(sorted);
+        long p50 = TimeUnit.NANOSECONDS.toMillis(sorted[(int) (total * 0.50)]);
+        long p99 = sorted[(int) (total * 0.99)] == Long.MAX_VALUE
+                ? Long.MAX_VALUE : TimeUnit.NANOSECONDS.toMillis(sorted[(int) (total * 0.99)]);
+        double successRate = (double) succeeded.get() / total;
+        boolean sustained = successRate >= 0.99 && p99 <= p99Millis;
+        System.out.printf("%6d req/s: %5.1f%% 2xx, p50 %d ms, p99 %s ms -> %s%n", rps, successRate * 100, p50,
+                p99 == Long.MAX_VALUE ? "timeout" : String.valueOf(p99), sustained ? "sustained" : "not sustained");
+        return sustained;
+    }
+
+    private boolean send() {
+        long id = sequence.getAndIncrement();
+        HttpPost post = new HttpPost(url);
+        post.setHeader("Authorization", authorization);
+        // Distinct recipients across the whole run, so frequency caps do not turn it into a cap test
+        String phoneNumber = String.format("+9198%08d", id % 100000000);
+        post.setEntity(new StringEntity("{\"phoneNumber\":\"" + phoneNumber + "\",\"message\":\"Your order has been shipped"
+                + " and will be delivered tomorrow. Track it at https://example.com/t/" + id + "\"}",
+                ContentType.APPLICATION_JSON));
+        try (CloseableHttpResponse response = httpClient.execute(post)) {
+            EntityUtils.consume(response.getEntity());
+            int status = response.getStatusLine().getStatusCode();
+            return status >= 200 && status < 300;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.notification.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.notification.dto.NotificationDtos.SmsRequestDto;
+import com.notification.util.SmsSegmentCalculator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the encoding and segment analysis that /sms/send runs on every message.
+ *
+ * {@code requestJson} deserializes the request body the same endpoint receives and is
+ * only there as a yardstick: both should stay in the microseconds, against the
+ * milliseconds of the Redis, MySQL and Kafka round trips of a send. Run with
+ * {@code -prof gc} to confirm that {@code analyze} allocates nothing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SmsSegmentCalculatorBenchmark {
+
+    @Param({"GSM_SHORT", "GSM_EXTENDED_LONG", "UCS2_SHORT", "UCS2_LONG"})
+    public String corpus;
+
+    private String text;
+    private String requestJson;
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setUp() throws Exception {
+        String order = "Your order 4021-8812 has been shipped and will be delivered by 21 Oct. Track it at https://example.com/t/4021";
+        switch (corpus) {
+            case "GSM_SHORT":
+                text = "482913 is your OTP for login. It is valid for 10 minutes. Do not share it with anyone.";
+                break;
+            case "GSM_EXTENDED_LONG":
+                text = order + " [ref {A1}] ~ " + order + " | " + order;
+                break;
+            case "UCS2_SHORT":
+                text = "Your order has been delivered 🚚 Rate us: https://example.com/r";
+                break;
+            default:
+                text = order + " 🎉 " + order + " " + order;
+        }
+        objectMapper = new ObjectMapper();
+        SmsRequestDto requestDto = new SmsRequestDto();
+        requestDto.setPhoneNumber("+919876543210");
+        requestDto.setMessage(text);
+        requestJson = objectMapper.writeValueAsString(requestDto);
+    }
+
+    @Benchmark
+    public long analyze() {
+        return SmsSegmentCalculator.analyze(text);
+    }
+
+    @Benchmark
+    public SmsRequestDto requestJson() throws Exception {
+        return objectMapper.readValue(requestJson, SmsRequestDto.class);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SmsSegmentCalculatorBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,50 @@
+package com.notification.model;
+
+import com.notification.util.MessageCodec;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SmsRequestTest {
+
+    private static final String MESSAGE = "482913 is your OTP for login. It is valid for 10 minutes. Do not share this OTP with anyone.";
+
+    @Test
+    void newRequestIsStoredEncodedOnPersist() {
+        SmsRequest smsRequest = SmsRequest.builder().message(MESSAGE).build();
+
+        smsRequest.encodeMessage();
+
+        assertNotNull(smsRequest.getMessageBody());
+        assertEquals(MESSAGE, MessageCodec.decode(smsRequest.getMessageBody()));
+        assertEquals(MESSAGE, smsRequest.getMessage());
+    }
+
+    @Test
+    void rowLoadedWithOnlyAnEncodedBodyIsDecoded() {
+        SmsRequest smsRequest = SmsRequest.builder().messageBody(MessageCodec.encode(MESSAGE)).build();
+
+        assertEquals(MESSAGE, smsRequest.getMessage());
+    }
+
+    @Test
+    void legacyRowIsReadFromTheMessageColumn() {
+        // Rows written before message_body existed have only the TEXT column
+        SmsRequest smsRequest = SmsRequest.builder().message(MESSAGE).build();
+
+        assertNull(smsRequest.getMessageBody());
+        assertEquals(MESSAGE, smsRequest.getMessage());
+    }
+
+    @Test
+    void templateSendHasNoLiteralBody() {
+        SmsRequest smsRequest = SmsRequest.builder().templateId("order_shipped").build();
+
+        smsRequest.encodeMessage();
+
+        assertNull(smsRequest.getMessageBody());
+        assertNull(smsRequest.getMessage());
+    }
+}
@@ -0,0 +1,45 @@
+package com.notification.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MessageCodecTest {
+
+    @Test
+    void typicalMessageIsDeflatedAndRoundTrips() {
+        String message = "Your order with order ID OD482913377 has been shipped via BlueDart and will be delivered by 24 Oct."
+                + " Track your order here: https://example.com/t/4021";
+        byte[] encoded = MessageCodec.encode(message);
+
+        assertEquals(1, encoded[0]);
+        assertTrue(encoded.length < message.getBytes(StandardCharsets.UTF_8).length);
+        assertEquals(message, MessageCodec.decode(encoded));
+    }
+
+    @Test
+    void incompressibleMessageFallsBackToPlainUtf8() {
+        String message = "x";
+        byte[] encoded = MessageCodec.encode(message);
+
+        assertEquals(0, encoded[0]);
+        assertEquals(2, encoded.length);
+        assertEquals(message, MessageCodec.decode(encoded));
+    }
+
+    @Test
+    void nonAsciiAndEmptyMessagesRoundTrip() {
+        String hindi = "आपका ओटीपी 482913 है। इसे किसी के साथ साझा न करें। 🚚";
+        assertEquals(hindi, MessageCodec.decode(MessageCodec.encode(hindi)));
+        assertEquals("", MessageCodec.decode(MessageCodec.encode("")));
+    }
+
+    @Test
+    void unknownFormatIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> MessageCodec.decode(new byte[]{9, 1, 2}));
+    }
+}
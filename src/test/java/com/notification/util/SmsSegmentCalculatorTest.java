@@ -0,0 +1,87 @@
+package com.notification.util;
+
+import com.notification.model.SmsRequest.SmsEncoding;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SmsSegmentCalculatorTest {
+
+    private static final String EMOJI = "😀";
+
+    @Test
+    void emptyMessageCostsOnePart() {
+        long result = SmsSegmentCalculator.analyze("");
+        assertEquals(SmsEncoding.GSM_7, SmsSegmentCalculator.encoding(result));
+        assertEquals(1, SmsSegmentCalculator.segments(result));
+        assertEquals(0, SmsSegmentCalculator.units(result));
+    }
+
+    @Test
+    void gsmSinglePartHolds160Septets() {
+        assertSegments(repeat("a", 160), SmsEncoding.GSM_7, 1);
+        assertSegments(repeat("a", 161), SmsEncoding.GSM_7, 2);
+    }
+
+    @Test
+    void gsmMultipartHolds153SeptetsPerPart() {
+        assertSegments(repeat("a", 306), SmsEncoding.GSM_7, 2);
+        assertSegments(repeat("a", 307), SmsEncoding.GSM_7, 3);
+    }
+
+    @Test
+    void gsmExtendedCharactersCostTwoSeptets() {
+        long result = SmsSegmentCalculator.analyze(repeat("€", 80));
+        assertEquals(SmsEncoding.GSM_7, SmsSegmentCalculator.encoding(result));
+        assertEquals(1, SmsSegmentCalculator.segments(result));
+        assertEquals(80, SmsSegmentCalculator.extendedChars(result));
+        assertEquals(160, SmsSegmentCalculator.units(result));
+
+        assertSegments(repeat("€", 81), SmsEncoding.GSM_7, 2);
+    }
+
+    @Test
+    void gsmEscapeSequenceIsNeverSplitAcrossParts() {
+        // 306 septets would fit two parts, but the escape can't straddle the first boundary
+        String text = repeat("a", 152) + "€" + repeat("a", 152);
+        assertEquals(306, SmsSegmentCalculator.units(SmsSegmentCalculator.analyze(text)));
+        assertSegments(text, SmsEncoding.GSM_7, 3);
+    }
+
+    @Test
+    void ucs2SinglePartHolds70Units() {
+        assertSegments("ж" + repeat("a", 69), SmsEncoding.UCS_2, 1);
+        assertSegments("ж" + repeat("a", 70), SmsEncoding.UCS_2, 2);
+    }
+
+    @Test
+    void ucs2MultipartHolds67UnitsPerPart() {
+        assertSegments("ж" + repeat("a", 133), SmsEncoding.UCS_2, 2);
+        assertSegments("ж" + repeat("a", 134), SmsEncoding.UCS_2, 3);
+    }
+
+    @Test
+    void surrogatePairCountsTwoUnitsAndIsNeverSplitAcrossParts() {
+        long result = SmsSegmentCalculator.analyze(repeat(EMOJI, 35));
+        assertEquals(SmsEncoding.UCS_2, SmsSegmentCalculator.encoding(result));
+        assertEquals(70, SmsSegmentCalculator.units(result));
+        assertEquals(1, SmsSegmentCalculator.segments(result));
+
+        // 134 units would fit two parts, but the pair can't straddle the first boundary
+        assertSegments(repeat("a", 66) + EMOJI + repeat("a", 66), SmsEncoding.UCS_2, 3);
+    }
+
+    private static void assertSegments(String text, SmsEncoding encoding, int segments) {
+        long result = SmsSegmentCalculator.analyze(text);
+        assertEquals(encoding, SmsSegmentCalculator.encoding(result));
+        assertEquals(segments, SmsSegmentCalculator.segments(result));
+    }
+
+    private static String repeat(String value, int times) {
+        StringBuilder builder = new StringBuilder(value.length() * times);
+        for (int i = 0; i < times; i++) {
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+}